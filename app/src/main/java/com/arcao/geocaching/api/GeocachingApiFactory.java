@@ -5,16 +5,23 @@ import android.os.Build;
 import com.arcao.geocaching.api.configuration.GeocachingApiConfiguration;
 import com.arcao.geocaching.api.configuration.impl.DefaultProductionGeocachingApiConfiguration;
 import com.arcao.geocaching.api.configuration.impl.DefaultStagingGeocachingApiConfiguration;
+import com.arcao.geocaching.api.downloader.CachePolicyInterceptor;
 import com.arcao.geocaching.api.downloader.Downloader;
 import com.arcao.geocaching.api.downloader.OkHttpClientDownloader;
+import com.arcao.geocaching.api.downloader.TokenBucketRateLimiter;
 import com.arcao.geocaching4locus.BuildConfig;
+import com.arcao.geocaching4locus.base.constants.AppConstants;
 
+import java.io.File;
 import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 import javax.net.ssl.SSLContext;
 
+import okhttp3.Cache;
 import okhttp3.ConnectionSpec;
 import okhttp3.OkHttpClient;
 import timber.log.Timber;
@@ -22,29 +29,79 @@ import timber.log.Timber;
 public class GeocachingApiFactory {
     private static GeocachingApiConfiguration apiConfiguration;
     private static OkHttpClient client;
-    private static Downloader downloader;
+    private static final Map<TokenBucketRateLimiter.Priority, Downloader> downloaders = new EnumMap<>(TokenBucketRateLimiter.Priority.class);
+    private static TokenBucketRateLimiter rateLimiter;
+    private static File httpCacheDirectory;
 
     public static GeocachingApi create() {
+        return create(TokenBucketRateLimiter.Priority.NORMAL);
+    }
+
+    public static GeocachingApi create(TokenBucketRateLimiter.Priority priority) {
+        return create(getDownloader(priority));
+    }
+
+    public static GeocachingApi create(Downloader downloader) {
         return LiveGeocachingApi.builder()
                 .configuration(getApiConfiguration())
-                .downloader(getDownloader())
+                .downloader(downloader)
                 .build();
     }
 
     public static Downloader getDownloader() {
+        return getDownloader(TokenBucketRateLimiter.Priority.NORMAL);
+    }
+
+    /**
+     * Returns a shared downloader for Geocaching Live API calls with the given priority. All
+     * downloaders share one rate limiter.
+     */
+    public static synchronized Downloader getDownloader(TokenBucketRateLimiter.Priority priority) {
+        Downloader downloader = downloaders.get(priority);
         if (downloader == null) {
-            downloader = new OkHttpClientDownloader(getOkHttpClient());
+            downloader = createDownloader(priority);
+            downloaders.put(priority, downloader);
         }
         return downloader;
     }
 
-    public static OkHttpClient getOkHttpClient() {
+    /**
+     * Create a new downloader for Geocaching Live API calls, eg. to be able to cancel its calls.
+     */
+    public static OkHttpClientDownloader createDownloader(TokenBucketRateLimiter.Priority priority) {
+        return new OkHttpClientDownloader(getOkHttpClient(), getRateLimiter(), priority);
+    }
+
+    public static synchronized TokenBucketRateLimiter getRateLimiter() {
+        if (rateLimiter == null) {
+            rateLimiter = new TokenBucketRateLimiter(AppConstants.LIVE_API_CALLS_PER_MINUTE, AppConstants.LIVE_API_CALLS_BURST);
+        }
+        return rateLimiter;
+    }
+
+    /**
+     * Set a directory for the HTTP disk cache. It has to be called before the first API call,
+     * without it responses are not cached.
+     */
+    public static synchronized void setHttpCacheDirectory(File directory) {
+        httpCacheDirectory = directory;
+    }
+
+    public static synchronized OkHttpClient getOkHttpClient() {
         if (client == null) {
             GeocachingApiConfiguration apiConfiguration = getApiConfiguration();
-            client = enableTls12OnPreLollipop(new OkHttpClient.Builder()
+            OkHttpClient.Builder builder = new OkHttpClient.Builder()
                     .connectTimeout(apiConfiguration.getConnectTimeout(), TimeUnit.MILLISECONDS)
-                    .readTimeout(apiConfiguration.getReadTimeout(), TimeUnit.MILLISECONDS)
-            ).build();
+                    .readTimeout(apiConfiguration.getReadTimeout(), TimeUnit.MILLISECONDS);
+
+            if (httpCacheDirectory != null) {
+                builder.cache(new Cache(httpCacheDirectory, AppConstants.HTTP_CACHE_SIZE))
+                        .addNetworkInterceptor(new CachePolicyInterceptor()
+                                .addPolicy("/getCacheCodeFromGuid$", AppConstants.HTTP_CACHE_GUID_TO_CODE_MAX_AGE_SECONDS)
+                                .addPolicy("/GetBookmarkListsForUser$", AppConstants.HTTP_CACHE_BOOKMARK_LISTS_MAX_AGE_SECONDS));
+            }
+
+            client = enableTls12OnPreLollipop(builder).build();
         }
         return client;
     }
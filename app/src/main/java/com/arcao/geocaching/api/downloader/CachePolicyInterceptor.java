@@ -0,0 +1,94 @@
+package com.arcao.geocaching.api.downloader;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.BufferedSource;
+import timber.log.Timber;
+
+/**
+ * Network interceptor which makes responses of selected GET endpoints cacheable by the OkHttp
+ * disk cache for a given time, whatever the server sends. Only successful responses with
+ * a successful API status are cached, so an error is never served from the cache. Other
+ * responses are not changed.
+ */
+public class CachePolicyInterceptor implements Interceptor {
+    private static final long MAX_PEEK_BYTES = 256 * 1024;
+    // Geocaching Live API uses StatusCode, Wherigo service Code
+    private static final Pattern SUCCESS_STATUS_PATTERN = Pattern.compile("\"(?:Status)?Code\"\\s*:\\s*0\\b");
+
+    private final List<Policy> policies = new ArrayList<>();
+
+    private static class Policy {
+        final Pattern pathPattern;
+        final long maxAgeSeconds;
+
+        Policy(Pattern pathPattern, long maxAgeSeconds) {
+            this.pathPattern = pathPattern;
+            this.maxAgeSeconds = maxAgeSeconds;
+        }
+    }
+
+    /**
+     * Cache responses of GET requests with the URL path matching a pattern.
+     *
+     * @param pathPattern   pattern matched case insensitive against a part of the URL path
+     * @param maxAgeSeconds time to keep a response fresh in the cache
+     */
+    public CachePolicyInterceptor addPolicy(@NonNull String pathPattern, long maxAgeSeconds) {
+        policies.add(new Policy(Pattern.compile(pathPattern, Pattern.CASE_INSENSITIVE), maxAgeSeconds));
+        return this;
+    }
+
+    @Override
+    public Response intercept(@NonNull Chain chain) throws IOException {
+        Request request = chain.request();
+        Response response = chain.proceed(request);
+
+        if (!"GET".equals(request.method()) || !response.isSuccessful())
+            return response;
+
+        Policy policy = findPolicy(request.url().encodedPath());
+        if (policy == null || !isSuccessStatus(response))
+            return response;
+
+        return response.newBuilder()
+                .removeHeader("Pragma")
+                .removeHeader("Expires")
+                .header("Cache-Control", "public, max-age=" + policy.maxAgeSeconds)
+                .build();
+    }
+
+    @Nullable
+    private Policy findPolicy(String path) {
+        for (Policy policy : policies) {
+            if (policy.pathPattern.matcher(path).find())
+                return policy;
+        }
+        return null;
+    }
+
+    private static boolean isSuccessStatus(Response response) {
+        try {
+            ResponseBody body = response.peekBody(MAX_PEEK_BYTES);
+            if (body.contentLength() >= MAX_PEEK_BYTES)
+                return false;
+
+            // an unsupported encoding fails, the response is not cached then
+            BufferedSource source = OkHttpClientDownloader.decodeContent(response.header("Content-Encoding"), body.source());
+            return SUCCESS_STATUS_PATTERN.matcher(source.readUtf8()).find();
+        } catch (IOException e) {
+            Timber.w(e);
+            return false;
+        }
+    }
+}
@@ -1,52 +1,154 @@
 package com.arcao.geocaching.api.downloader;
 
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
 import com.arcao.geocaching.api.exception.InvalidResponseException;
 import com.arcao.geocaching.api.exception.NetworkException;
 import com.arcao.geocaching4locus.BuildConfig;
 
+import java.io.IOException;
+import java.io.InputStreamReader;
 import java.io.Reader;
 import java.net.URL;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Inflater;
 
+import okhttp3.CacheControl;
+import okhttp3.Call;
 import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.RequestBody;
 import okhttp3.Response;
 import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.GzipSource;
+import okio.InflaterSource;
+import okio.Okio;
+import okio.Source;
 import timber.log.Timber;
 
 public class OkHttpClientDownloader implements Downloader {
     private static final MediaType MEDIA_TYPE_JSON = MediaType.parse("application/json; charset=utf-8");
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
 
     private final OkHttpClient client;
+    private final TokenBucketRateLimiter rateLimiter;
+    private final TokenBucketRateLimiter.Priority priority;
+    // the last call of each thread, its response body may be still read by a parser
+    private final Map<Thread, Call> lastCalls = Collections.synchronizedMap(new WeakHashMap<>());
+    // incremented by cancelRunningCalls, calls waiting for the rate limiter are not started then
+    private final AtomicInteger cancelCount = new AtomicInteger();
+
+    // bytes of fully read response bodies, as received and after decompression
+    private final AtomicLong receivedBytes = new AtomicLong();
+    private final AtomicLong decodedBytes = new AtomicLong();
 
+    @Nullable
+    private volatile CacheControl cacheControl;
+
+    /**
+     * Create a downloader without a rate limit.
+     */
     public OkHttpClientDownloader(OkHttpClient client) {
+        this(client, null, TokenBucketRateLimiter.Priority.NORMAL);
+    }
+
+    /**
+     * Create a downloader which waits for the rate limiter before each call.
+     */
+    public OkHttpClientDownloader(OkHttpClient client, @Nullable TokenBucketRateLimiter rateLimiter,
+                                  @NonNull TokenBucketRateLimiter.Priority priority) {
         this.client = client;
+        this.rateLimiter = rateLimiter;
+        this.priority = priority;
+    }
+
+    /**
+     * Abort all calls currently running by this downloader. Aborted calls fail with
+     * {@link NetworkException}.
+     */
+    public void cancelRunningCalls() {
+        cancelCount.incrementAndGet();
+
+        synchronized (lastCalls) {
+            for (Call call : lastCalls.values())
+                call.cancel();
+        }
+    }
+
+    /**
+     * Set a cache control of GET requests, eg. {@link CacheControl#FORCE_NETWORK} to skip
+     * a cached response on a reload requested by the user. The new response is still cached.
+     */
+    public void setCacheControl(@Nullable CacheControl cacheControl) {
+        this.cacheControl = cacheControl;
+    }
+
+    /**
+     * Count of response body bytes received by this downloader, as transferred over the network.
+     */
+    public long getReceivedBytes() {
+        return receivedBytes.get();
+    }
+
+    /**
+     * Count of response body bytes read by parsers after decompression.
+     */
+    public long getDecodedBytes() {
+        return decodedBytes.get();
+    }
+
+    private Response execute(Request request) throws IOException, InterruptedException {
+        if (rateLimiter != null) {
+            int cancelCountBefore = cancelCount.get();
+            rateLimiter.acquire(priority);
+
+            if (cancelCount.get() != cancelCountBefore)
+                throw new IOException("Canceled");
+        }
+
+        Call call = client.newCall(request);
+        lastCalls.put(Thread.currentThread(), call);
+        return call.execute();
     }
 
     @Override
     public Reader get(URL url) throws NetworkException, InvalidResponseException {
         try {
-            Request request = new Request.Builder()
+            Request.Builder builder = new Request.Builder()
                     .url(url)
                     .addHeader("User-Agent", "Geocaching4Locus/" + BuildConfig.VERSION_NAME)
                     .addHeader("Accept-Language", "en-US")
                     .addHeader("Accept-Encoding", "gzip, deflate")
-                    .addHeader("Accept", "application/json")
-                    .build();
+                    .addHeader("Accept", "application/json");
+
+            CacheControl cacheControl = this.cacheControl;
+            if (cacheControl != null)
+                builder.cacheControl(cacheControl);
 
-            Response response = client.newCall(request).execute();
+            Request request = builder.build();
+
+            Response response = execute(request);
             ResponseBody body = response.body();
 
             if (!response.isSuccessful()) {
                 // read error response
-                throw new InvalidResponseException(response.code(), response.message(), (body != null ? body.string() : null));
+                throw new InvalidResponseException(response.code(), response.message(), body != null ? readString(response, body) : null);
             }
 
             if (body == null)
                 throw new InvalidResponseException("Body is null!");
 
-            return body.charStream();
+            return createReader(response, body);
         } catch (InvalidResponseException e) {
             Timber.e(e);
             throw e;
@@ -68,18 +170,18 @@ public class OkHttpClientDownloader implements Downloader {
                     .addHeader("Accept-Encoding", "gzip, deflate")
                     .build();
 
-            Response response = client.newCall(request).execute();
+            Response response = execute(request);
             ResponseBody body = response.body();
 
             if (!response.isSuccessful()) {
                 // read error response
-                throw new InvalidResponseException(response.code(), response.message(), body != null ? body.string() : null);
+                throw new InvalidResponseException(response.code(), response.message(), body != null ? readString(response, body) : null);
             }
 
             if (body == null)
                 throw new InvalidResponseException("Body is null!");
 
-            return body.charStream();
+            return createReader(response, body);
         } catch (InvalidResponseException e) {
             Timber.e(e);
             throw e;
@@ -88,4 +190,92 @@ public class OkHttpClientDownloader implements Downloader {
             throw new NetworkException("Error while downloading data (" + e.getClass().getSimpleName() + "): " + e.getMessage(), e);
         }
     }
+
+    /**
+     * Create a reader of a response body decoded from the charset given by the response. Unlike
+     * {@link ResponseBody#charStream()}, it also decompresses the body, because OkHttp doesn't do
+     * it transparently when the Accept-Encoding header is set by hand.
+     */
+    private Reader createReader(Response response, ResponseBody body) throws IOException {
+        return new InputStreamReader(decode(response, body).inputStream(), charset(body));
+    }
+
+    private String readString(Response response, ResponseBody body) throws IOException {
+        try (BufferedSource source = decode(response, body)) {
+            return source.readString(charset(body));
+        }
+    }
+
+    private static Charset charset(ResponseBody body) {
+        MediaType contentType = body.contentType();
+        return contentType != null ? contentType.charset(UTF_8) : UTF_8;
+    }
+
+    private BufferedSource decode(Response response, ResponseBody body) throws IOException {
+        ByteCountingSource received = new ByteCountingSource(body.source());
+        BufferedSource source = decodeContent(response.header("Content-Encoding"), Okio.buffer(received));
+
+        String url = response.request().url().encodedPath();
+        return Okio.buffer(new ByteCountingSource(source) {
+            @Override
+            public void close() throws IOException {
+                super.close();
+
+                receivedBytes.addAndGet(received.getCount());
+                decodedBytes.addAndGet(getCount());
+                Timber.d("%s: %d bytes received, %d bytes decoded", url, received.getCount(), getCount());
+            }
+        });
+    }
+
+    /**
+     * Decompress a response body sent with the content encoding.
+     *
+     * @throws IOException if the content encoding is not supported
+     */
+    @NonNull
+    static BufferedSource decodeContent(@Nullable String contentEncoding, @NonNull BufferedSource source) throws IOException {
+        if ("gzip".equalsIgnoreCase(contentEncoding))
+            return Okio.buffer(new GzipSource(source));
+
+        if ("deflate".equalsIgnoreCase(contentEncoding))
+            return Okio.buffer(new InflaterSource(source, new Inflater(!isZlibHeader(source))));
+
+        if (contentEncoding != null && !"identity".equalsIgnoreCase(contentEncoding))
+            throw new IOException("Unsupported Content-Encoding: " + contentEncoding);
+
+        return source;
+    }
+
+    /**
+     * Deflate encoding should be zlib wrapped (RFC 2616), but some servers send a raw deflate stream.
+     */
+    private static boolean isZlibHeader(BufferedSource source) throws IOException {
+        if (!source.request(2))
+            return true;
+
+        int cmf = source.buffer().getByte(0) & 0xFF;
+        int flg = source.buffer().getByte(1) & 0xFF;
+        return (cmf & 0x0F) == 8 && ((cmf << 8) | flg) % 31 == 0;
+    }
+
+    private static class ByteCountingSource extends ForwardingSource {
+        private long count;
+
+        ByteCountingSource(Source delegate) {
+            super(delegate);
+        }
+
+        long getCount() {
+            return count;
+        }
+
+        @Override
+        public long read(@NonNull Buffer sink, long byteCount) throws IOException {
+            long read = super.read(sink, byteCount);
+            if (read > 0)
+                count += read;
+            return read;
+        }
+    }
 }
@@ -0,0 +1,142 @@
+package com.arcao.geocaching.api.downloader;
+
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+
+import java.util.Locale;
+
+import timber.log.Timber;
+
+/**
+ * Token bucket limiting a rate of Geocaching Live API calls. The bucket holds at most
+ * <code>burst</code> tokens and is refilled so that there are never more than
+ * <code>callsPerMinute</code> calls in any minute, including the initial burst.
+ * <p>
+ * A free token is always given to a waiting call with the highest priority. Time spent waiting
+ * for a token is collected for each priority.
+ */
+public class TokenBucketRateLimiter {
+    public enum Priority {
+        /** Calls started by the user, who is waiting for them, eg. an update of a single geocache */
+        INTERACTIVE,
+        /** Downloads running in the foreground with a progress dialog */
+        NORMAL,
+        /** Calls made in the background, eg. Live Map */
+        BACKGROUND
+    }
+
+    private static final long MINUTE_MS = 60000;
+    private static final Priority[] PRIORITIES = Priority.values();
+
+    private final int burst;
+    private final double tokensPerMs;
+
+    private double tokens;
+    private long lastRefillTime;
+
+    private final int[] waitingCount = new int[PRIORITIES.length];
+    private final long[] acquiredCount = new long[PRIORITIES.length];
+    private final long[] totalWaitTime = new long[PRIORITIES.length];
+    private final long[] maxWaitTime = new long[PRIORITIES.length];
+
+    public TokenBucketRateLimiter(int callsPerMinute, int burst) {
+        if (burst < 1 || burst >= callsPerMinute)
+            throw new IllegalArgumentException("Burst must be between 1 and " + (callsPerMinute - 1));
+
+        this.burst = burst;
+        tokensPerMs = (double) (callsPerMinute - burst) / MINUTE_MS;
+
+        tokens = burst;
+        lastRefillTime = SystemClock.elapsedRealtime();
+    }
+
+    /**
+     * Wait until a call with the given priority can be made.
+     */
+    public synchronized void acquire(@NonNull Priority priority) throws InterruptedException {
+        final int index = priority.ordinal();
+        final long startTime = SystemClock.elapsedRealtime();
+
+        waitingCount[index]++;
+        try {
+            while (true) {
+                refill();
+
+                if (isHigherPriorityWaiting(index)) {
+                    // every waiting call notifies others when it leaves
+                    wait();
+                    continue;
+                }
+
+                if (tokens >= 1) {
+                    tokens--;
+                    break;
+                }
+
+                wait(Math.max(1, (long) Math.ceil((1 - tokens) / tokensPerMs)));
+            }
+        } finally {
+            waitingCount[index]--;
+            notifyAll();
+        }
+
+        long waitTime = SystemClock.elapsedRealtime() - startTime;
+        acquiredCount[index]++;
+        totalWaitTime[index] += waitTime;
+        maxWaitTime[index] = Math.max(maxWaitTime[index], waitTime);
+
+        if (waitTime > 0)
+            Timber.d("%s call waited %d ms for the rate limiter", priority, waitTime);
+    }
+
+    public synchronized long getAcquiredCount(@NonNull Priority priority) {
+        return acquiredCount[priority.ordinal()];
+    }
+
+    /**
+     * Average time in ms calls with the given priority waited for a token.
+     */
+    public synchronized long getAverageWaitTime(@NonNull Priority priority) {
+        int index = priority.ordinal();
+        return acquiredCount[index] > 0 ? totalWaitTime[index] / acquiredCount[index] : 0;
+    }
+
+    /**
+     * The longest time in ms a call with the given priority waited for a token.
+     */
+    public synchronized long getMaxWaitTime(@NonNull Priority priority) {
+        return maxWaitTime[priority.ordinal()];
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder sb = new StringBuilder("TokenBucketRateLimiter{tokens=")
+                .append(String.format(Locale.US, "%.2f", tokens));
+
+        for (Priority priority : PRIORITIES) {
+            int index = priority.ordinal();
+            sb.append(", ").append(priority)
+                    .append("={calls=").append(acquiredCount[index])
+                    .append(", waiting=").append(waitingCount[index])
+                    .append(", avgWaitMs=").append(getAverageWaitTime(priority))
+                    .append(", maxWaitMs=").append(maxWaitTime[index])
+                    .append('}');
+        }
+
+        return sb.append('}').toString();
+    }
+
+    private boolean isHigherPriorityWaiting(int index) {
+        for (int i = 0; i < index; i++) {
+            if (waitingCount[i] > 0)
+                return true;
+        }
+        return false;
+    }
+
+    private void refill() {
+        long now = SystemClock.elapsedRealtime();
+        tokens = Math.min(burst, tokens + (now - lastRefillTime) * tokensPerMs);
+        lastRefillTime = now;
+    }
+}
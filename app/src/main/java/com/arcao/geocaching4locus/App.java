@@ -10,15 +10,21 @@ import android.text.TextUtils;
 import android.webkit.CookieManager;
 import android.webkit.CookieSyncManager;
 
+import com.arcao.geocaching.api.GeocachingApiFactory;
 import com.arcao.geocaching4locus.authentication.util.Account;
 import com.arcao.geocaching4locus.authentication.util.AccountManager;
 import com.arcao.geocaching4locus.authentication.util.PreferenceAccountManager;
+import com.arcao.geocaching4locus.authentication.util.SessionManager;
+import com.arcao.geocaching4locus.base.constants.AppConstants;
 import com.arcao.geocaching4locus.base.constants.CrashlyticsConstants;
+import com.arcao.geocaching4locus.base.storage.GeocacheStore;
 import com.arcao.geocaching4locus.base.util.AnalyticsUtil;
 import com.arcao.geocaching4locus.base.util.CrashlyticsTree;
+import com.arcao.geocaching4locus.base.util.ItemsPerRequestController;
 import com.crashlytics.android.Crashlytics;
 import com.crashlytics.android.core.CrashlyticsCore;
 
+import java.io.File;
 import java.util.UUID;
 
 import io.fabric.sdk.android.Fabric;
@@ -27,6 +33,9 @@ import timber.log.Timber;
 
 public class App extends Application {
     private AccountManager accountManager;
+    private SessionManager sessionManager;
+    private GeocacheStore geocacheStore;
+    private ItemsPerRequestController itemsPerRequestController;
     private String deviceId;
 
     @Override
@@ -47,9 +56,14 @@ public class App extends Application {
         Fabric.with(this, crashlyticsKit);
         Timber.plant(new CrashlyticsTree());
 
+        GeocachingApiFactory.setHttpCacheDirectory(new File(getCacheDir(), AppConstants.HTTP_CACHE_DIRECTORY));
+
         Crashlytics.setUserIdentifier(getDeviceId());
 
-        accountManager = new PreferenceAccountManager(this);
+        geocacheStore = new GeocacheStore(this);
+        accountManager = new PreferenceAccountManager(this, geocacheStore);
+        sessionManager = new SessionManager(this, accountManager);
+        itemsPerRequestController = new ItemsPerRequestController(this);
 
         Account account = accountManager.getAccount();
         if (account != null) {
@@ -79,6 +93,18 @@ public class App extends Application {
         return accountManager;
     }
 
+    public SessionManager getSessionManager() {
+        return sessionManager;
+    }
+
+    public GeocacheStore getGeocacheStore() {
+        return geocacheStore;
+    }
+
+    public ItemsPerRequestController getItemsPerRequestController() {
+        return itemsPerRequestController;
+    }
+
     public String getDeviceId() {
         SharedPreferences pref = PreferenceManager.getDefaultSharedPreferences(this);
 
@@ -8,6 +8,7 @@ import android.support.annotation.Nullable;
 
 import com.arcao.geocaching.api.GeocachingApi;
 import com.arcao.geocaching.api.GeocachingApiFactory;
+import com.arcao.geocaching.api.downloader.TokenBucketRateLimiter;
 import com.arcao.geocaching.api.data.UserProfile;
 import com.arcao.geocaching.api.data.apilimits.ApiLimitsResponse;
 import com.arcao.geocaching.api.exception.InvalidResponseException;
@@ -87,7 +88,7 @@ public class OAuthLoginTask extends UserTask<String, Void, String[]> {
                 OAuth1AccessToken accessToken = service.getAccessToken(requestToken, params[0]);
 
                 // get account name
-                GeocachingApi api = GeocachingApiFactory.create();
+                GeocachingApi api = GeocachingApiFactory.create(TokenBucketRateLimiter.Priority.INTERACTIVE);
                 api.openSession(accessToken.getToken());
 
                 UserProfile userProfile = api.getYourUserProfile(false, false, false, false, false, false, DeviceInfoFactory.create(context));
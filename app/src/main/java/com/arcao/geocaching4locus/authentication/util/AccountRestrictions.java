@@ -154,6 +154,22 @@ public class AccountRestrictions {
         return maxFullGeocacheLimit;
     }
 
+    public long getCurrentFullGeocacheLimit() {
+        checkRenewPeriod();
+
+        return currentFullGeocacheLimit;
+    }
+
+    /**
+     * Returns a count of geocaches with full details which can be downloaded before the limit
+     * is renewed.
+     */
+    public long getRemainingFullGeocacheCount() {
+        checkRenewPeriod();
+
+        return Math.max(maxFullGeocacheLimit - currentFullGeocacheLimit, 0);
+    }
+
     public Date getRenewFullGeocacheLimit() {
         checkRenewPeriod();
 
@@ -13,6 +13,7 @@ import com.arcao.geocaching.api.data.coordinates.Coordinates;
 import com.arcao.geocaching.api.data.type.MemberType;
 import com.arcao.geocaching4locus.authentication.LoginActivity;
 import com.arcao.geocaching4locus.base.constants.PrefConstants;
+import com.arcao.geocaching4locus.base.storage.GeocacheStore;
 import com.github.scribejava.core.model.OAuth1RequestToken;
 
 import java.util.Date;
@@ -22,16 +23,18 @@ public class PreferenceAccountManager implements AccountManager {
     private final SharedPreferences preferences;
     private final Context context;
     private final AccountRestrictions restrictions;
+    private final GeocacheStore geocacheStore;
     private Account account;
     private long lastAccountUpdateTime;
 
-    public PreferenceAccountManager(Context context) {
+    public PreferenceAccountManager(Context context, GeocacheStore geocacheStore) {
         // Do not store username, password and hash in default shared preferences
         // PreferencesBackupAgent backup default shared preferences to Google Backup Service
         this.context = context.getApplicationContext();
 
         preferences = this.context.getSharedPreferences(PrefConstants.ACCOUNT_STORAGE_NAME, Context.MODE_PRIVATE);
         restrictions = new AccountRestrictions(this.context);
+        this.geocacheStore = geocacheStore;
 
         load();
     }
@@ -103,8 +106,12 @@ public class PreferenceAccountManager implements AccountManager {
 
     @Override
     public void addAccount(@NonNull Account account) {
-        if (this.account != null)
+        if (this.account != null) {
             removeAccount();
+        } else {
+            // stored geocaches can contain found and own state of a previous user
+            geocacheStore.clear();
+        }
 
         this.account = account;
         lastAccountUpdateTime = new Date().getTime();
@@ -127,6 +134,9 @@ public class PreferenceAccountManager implements AccountManager {
                 .apply();
 
         restrictions.remove();
+
+        // found and own state of stored geocaches belongs to the removed user
+        geocacheStore.clear();
     }
 
     @Override
@@ -0,0 +1,246 @@
+package com.arcao.geocaching4locus.authentication.util;
+
+import android.content.Context;
+import android.support.annotation.NonNull;
+
+import com.arcao.geocaching.api.GeocachingApi;
+import com.arcao.geocaching.api.GeocachingApiFactory;
+import com.arcao.geocaching.api.data.UserProfile;
+import com.arcao.geocaching.api.downloader.TokenBucketRateLimiter.Priority;
+import com.arcao.geocaching.api.exception.GeocachingApiException;
+import com.arcao.geocaching.api.exception.InvalidCredentialsException;
+import com.arcao.geocaching.api.exception.InvalidResponseException;
+import com.arcao.geocaching.api.exception.InvalidSessionException;
+
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import timber.log.Timber;
+
+/**
+ * Keeps GeocachingApi instances with an opened session of the current account, so a task
+ * doesn't have to log in before its first request. A GeocachingApi instance can't be used by
+ * more threads at once, so each task gets its own instance for the time of a {@link Session}.
+ * <p>
+ * The user profile is updated in the background when it's required, tasks don't wait for it.
+ * Sessions are dropped when the OAuth token changes or after {@link #invalidate()}.
+ */
+public class SessionManager {
+    private final Context context;
+    private final AccountManager accountManager;
+
+    private final Map<Priority, Deque<GeocachingApi>> idleApis = new EnumMap<>(Priority.class);
+    private final ExecutorService profileExecutor;
+    // fair, so a waiting paging task is not starved by a stream of other searches
+    private final ReadWriteLock searchLock = new ReentrantReadWriteLock(true);
+    private String sessionToken;
+    private boolean profileUpdateRunning;
+
+    /**
+     * Authenticated GeocachingApi borrowed from the session manager. It's returned back
+     * to the manager when closed.
+     */
+    public static class Session implements Closeable {
+        private final SessionManager manager;
+        private final Priority priority;
+        private final String token;
+        private final GeocachingApi api;
+
+        Session(SessionManager manager, Priority priority, String token, GeocachingApi api) {
+            this.manager = manager;
+            this.priority = priority;
+            this.token = token;
+            this.api = api;
+        }
+
+        @NonNull
+        public GeocachingApi getApi() {
+            return api;
+        }
+
+        @Override
+        public void close() {
+            manager.release(this);
+        }
+    }
+
+    /**
+     * Held lock of the last search of the user. The lock is released when closed.
+     */
+    public static class SearchLock implements Closeable {
+        private final Lock lock;
+
+        SearchLock(Lock lock) {
+            this.lock = lock;
+        }
+
+        @Override
+        public void close() {
+            lock.unlock();
+        }
+    }
+
+    public SessionManager(@NonNull Context context, @NonNull AccountManager accountManager) {
+        this.context = context.getApplicationContext();
+        this.accountManager = accountManager;
+
+        profileExecutor = Executors.newSingleThreadExecutor(r -> new Thread(r, "SessionManager"));
+    }
+
+    /**
+     * Returns a session of the current account with GeocachingApi making calls with the given
+     * priority.
+     *
+     * @throws InvalidCredentialsException if there isn't any account
+     */
+    @NonNull
+    public Session open(@NonNull Priority priority) throws GeocachingApiException {
+        String token = getToken();
+
+        GeocachingApi api = null;
+        synchronized (this) {
+            if (!token.equals(sessionToken)) {
+                idleApis.clear();
+                sessionToken = token;
+            }
+
+            Deque<GeocachingApi> apis = idleApis.get(priority);
+            if (apis != null)
+                api = apis.pollFirst();
+        }
+
+        if (api == null) {
+            api = GeocachingApiFactory.create(priority);
+            api.openSession(token);
+        }
+
+        updateProfileIfRequired();
+        return new Session(this, priority, token, api);
+    }
+
+    /**
+     * Open a session of the current account in a GeocachingApi not managed by the session
+     * manager, eg. using a special downloader.
+     *
+     * @throws InvalidCredentialsException if there isn't any account
+     */
+    public void login(@NonNull GeocachingApi api) throws GeocachingApiException {
+        api.openSession(getToken());
+        updateProfileIfRequired();
+    }
+
+    /**
+     * Drop all sessions and the OAuth token of the account. Call it only when the Geocaching
+     * Live API refuses the token.
+     */
+    public synchronized void invalidate() {
+        idleApis.clear();
+        sessionToken = null;
+
+        accountManager.invalidateOAuthToken();
+    }
+
+    /**
+     * Lock the last search of the user exclusively. Geocaching Live API continues
+     * getMoreGeocaches from the last search of the user, so a task paging the result must hold
+     * the lock from searchForGeocaches to its last getMoreGeocaches.
+     *
+     * @throws InterruptedException if the task was interrupted while waiting for the lock
+     */
+    @NonNull
+    public SearchLock lockPaging() throws InterruptedException {
+        Lock lock = searchLock.writeLock();
+        lock.lockInterruptibly();
+        return new SearchLock(lock);
+    }
+
+    /**
+     * Lock the last search of the user for a single search call not followed by
+     * getMoreGeocaches, eg. a search by geocache codes or getGeocache. These calls run
+     * concurrently, they only wait for a paging task.
+     *
+     * @throws InterruptedException if the task was interrupted while waiting for the lock
+     */
+    @NonNull
+    public SearchLock lockSearch() throws InterruptedException {
+        Lock lock = searchLock.readLock();
+        lock.lockInterruptibly();
+        return new SearchLock(lock);
+    }
+
+    synchronized void release(Session session) {
+        // the session could be invalidated while it was used
+        if (!session.token.equals(sessionToken))
+            return;
+
+        Deque<GeocachingApi> apis = idleApis.get(session.priority);
+        if (apis == null) {
+            apis = new ArrayDeque<>();
+            idleApis.put(session.priority, apis);
+        }
+        apis.addFirst(session.api);
+    }
+
+    @NonNull
+    private String getToken() throws InvalidCredentialsException {
+        Account account = accountManager.getAccount();
+        if (account == null) throw new InvalidCredentialsException("Account not found.");
+
+        String token = accountManager.getOAuthToken();
+        if (token == null) {
+            accountManager.removeAccount();
+            throw new InvalidCredentialsException("Account not found.");
+        }
+
+        return token;
+    }
+
+    private void updateProfileIfRequired() {
+        synchronized (this) {
+            if (profileUpdateRunning || !accountManager.isAccountUpdateRequired())
+                return;
+
+            profileUpdateRunning = true;
+        }
+
+        profileExecutor.execute(() -> {
+            try {
+                GeocachingApi api = GeocachingApiFactory.create(Priority.BACKGROUND);
+                api.openSession(getToken());
+
+                UserProfile userProfile = api.getYourUserProfile(
+                        false,
+                        false,
+                        false,
+                        false,
+                        false,
+                        false,
+                        DeviceInfoFactory.create(context)
+                );
+
+                if (userProfile == null)
+                    throw new InvalidResponseException("User profile is null");
+
+                accountManager.updateAccount(accountManager.createAccount(userProfile.user()));
+            } catch (InvalidSessionException e) {
+                Timber.e(e);
+                invalidate();
+            } catch (Exception e) {
+                // tried again with the next session
+                Timber.e(e, "User profile update failed");
+            } finally {
+                synchronized (this) {
+                    profileUpdateRunning = false;
+                }
+            }
+        });
+    }
+}
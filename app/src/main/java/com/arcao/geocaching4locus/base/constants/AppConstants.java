@@ -30,20 +30,53 @@ public interface AppConstants {
     int ADAPTIVE_DOWNLOADING_MIN_ITEMS = 5;
     int ADAPTIVE_DOWNLOADING_MAX_ITEMS = 50;
     int ADAPTIVE_DOWNLOADING_STEP = 5;
-    int ADAPTIVE_DOWNLOADING_MIN_TIME_MS = 3500;  // more than time required for 30 calls per minute
     int ADAPTIVE_DOWNLOADING_MAX_TIME_MS = 10000;
     int ITEMS_PER_REQUEST = ADAPTIVE_DOWNLOADING_MIN_ITEMS;
 
     int SECONDS_PER_MINUTE = 60;
 
+    /* Geocaching Live API rate limit */
+    int LIVE_API_CALLS_PER_MINUTE = 30;
+    int LIVE_API_CALLS_BURST = 4;
+
+    /* HTTP cache configuration */
+    String HTTP_CACHE_DIRECTORY = "http";
+    long HTTP_CACHE_SIZE = 10 * 1024 * 1024;
+    long HTTP_CACHE_GUID_TO_CODE_MAX_AGE_SECONDS = 30 * 24 * 3600; // 30 days
+    long HTTP_CACHE_BOOKMARK_LISTS_MAX_AGE_SECONDS = 3600; // 1 hour
+
+    /* Count of threads in each lane of the task scheduler */
+    int TASK_SCHEDULER_NETWORK_THREADS = 3;
+    int TASK_SCHEDULER_LOCUS_THREADS = 1;
+
+    /* Count of search requests running at once while updating more geocaches */
+    int UPDATE_MORE_CONCURRENT_REQUESTS = 3;
+
     /* Search nearest cache count configuration */
     int DOWNLOADING_COUNT_OF_CACHES_DEFAULT = 20;
     int DOWNLOADING_COUNT_OF_CACHES_MAX = 500;
-    int DOWNLOADING_COUNT_OF_CACHES_MAX_LOW_MEMORY = 200;
     int DOWNLOADING_COUNT_OF_CACHES_STEP_DEFAULT = 10;
 
     long LOW_MEMORY_THRESHOLD = 16777216;
 
+    /* Memory governor of downloads, sizes are estimated in bytes */
+    long MEMORY_GOVERNOR_RESERVE = 4194304; // 4 MB
+    long MEMORY_GOVERNOR_LITE_GEOCACHE_SIZE = 8192;
+    long MEMORY_GOVERNOR_FULL_GEOCACHE_SIZE = 49152;
+    long MEMORY_GOVERNOR_LOG_SIZE = 2048;
+    int MEMORY_GOVERNOR_CHUNK_SIZE = 10;
+
+    /* Geocache store configuration */
+    long GEOCACHE_STORE_TTL_MS = 3600000; // 1 hour
+    int GEOCACHE_STORE_MAX_ENTRIES = 2000;
+    // markers are evicted separately, so panning the Live Map doesn't push out downloaded geocaches
+    int GEOCACHE_STORE_MAX_MARKERS = 2000;
+    // an explicit update reuses only geocaches downloaded a moment ago
+    long GEOCACHE_STORE_UPDATE_MAX_AGE_MS = 120000; // 2 minutes
+
+    /* Time to resume a failed download of geocaches */
+    long DOWNLOAD_CHECKPOINT_TTL_MS = 3600000; // 1 hour
+
     String UPDATE_WITH_LOGS_COMPONENT = "com.arcao.geocaching4locus.UpdateWithLogsActivity";
     int LOGS_PER_REQUEST = 30;
     int LOGS_TO_UPDATE_MAX = 100;
@@ -65,5 +98,10 @@ public interface AppConstants {
     int LIVEMAP_CACHES_COUNT = LIVEMAP_REQUESTS * LIVEMAP_CACHES_PER_REQUEST;
     int LIVEMAP_DISTANCE = 60000;
     String LIVEMAP_PACK_WAYPOINT_PREFIX = "LiveMap|";
+    long LIVEMAP_TILE_TTL_MS = 300000; // 5 minutes
+    int LIVEMAP_TILE_CACHE_SIZE = 256;
+    long LIVEMAP_REQUEST_DEBOUNCE_MS = 500;
+    float LIVEMAP_REQUEST_MIN_MOVEMENT = 0.1F; // of the viewport diagonal
+    float LIVEMAP_REQUEST_MIN_ZOOM_CHANGE = 1.5F; // ratio of the viewport diagonals
 
 }
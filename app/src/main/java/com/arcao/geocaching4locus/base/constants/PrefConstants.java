@@ -3,6 +3,9 @@ package com.arcao.geocaching4locus.base.constants;
 public interface PrefConstants {
     String ACCOUNT_STORAGE_NAME = "ACCOUNT";
     String RESTRICTION_STORAGE_NAME = "RESTRICTION";
+    String DOWNLOAD_CHECKPOINT_STORAGE_NAME = "DOWNLOAD_CHECKPOINT";
+    String LIVE_MAP_PACKS_STORAGE_NAME = "LIVE_MAP_PACKS";
+    String ADAPTIVE_DOWNLOADING_STORAGE_NAME = "ADAPTIVE_DOWNLOADING";
 
     String PREF_VERSION = "pref_version";
     int CURRENT_PREF_VERSION = 3;
@@ -70,6 +73,20 @@ public interface PrefConstants {
     String RESTRICTION__CURRENT_FULL_GEOCACHE_LIMIT = "current_full_geocache_limit";
     String RESTRICTION__MAX_FULL_GEOCACHE_LIMIT = "max_full_geocache_limit";
 
+    String DOWNLOAD_CHECKPOINT__PARAMETERS = "parameters";
+    String DOWNLOAD_CHECKPOINT__TIME = "time";
+    String DOWNLOAD_CHECKPOINT__OFFSET = "offset";
+    String DOWNLOAD_CHECKPOINT__TOTAL = "total";
+    String DOWNLOAD_CHECKPOINT__FILE_POSITION = "file_position";
+    String DOWNLOAD_CHECKPOINT__STORED_COUNT = "stored_count";
+    String DOWNLOAD_CHECKPOINT__FILE_SIZE = "file_size";
+    String DOWNLOAD_CHECKPOINT__FILE_LAST_MODIFIED = "file_last_modified";
+
+    String LIVE_MAP_PACKS__SENT = "sent";
+
+    String ADAPTIVE_DOWNLOADING__ITEMS_PER_REQUEST_PREFIX = "items_per_request_";
+    String ADAPTIVE_DOWNLOADING__CACHES_PER_SECOND_PREFIX = "caches_per_second_";
+
 
     String DOWNLOADING_FULL_CACHE_DATE_ON_SHOW__UPDATE_ONCE = "0";
     String DOWNLOADING_FULL_CACHE_DATE_ON_SHOW__UPDATE_EVERY = "1";
@@ -0,0 +1,159 @@
+package com.arcao.geocaching4locus.base.storage;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.preference.PreferenceManager;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.arcao.geocaching4locus.App;
+import com.arcao.geocaching4locus.authentication.util.Account;
+import com.arcao.geocaching4locus.base.constants.AppConstants;
+import com.arcao.geocaching4locus.base.constants.PrefConstants;
+
+import java.io.File;
+import java.util.Map;
+import java.util.TreeMap;
+
+import timber.log.Timber;
+
+/**
+ * Checkpoint of a download of geocaches to the Locus data file. A download saves its progress
+ * after each written page, so when it fails, another download with the same parameters can
+ * continue from the last page instead of starting over and spending the quota again.
+ * <p>
+ * The checkpoint is kept only after the download failed and its writer was closed (see
+ * {@link #seal(File)}). It's dropped when the data file is changed since then, when any
+ * parameter (including filter preferences) is different or after
+ * {@link AppConstants#DOWNLOAD_CHECKPOINT_TTL_MS}.
+ */
+public class DownloadCheckpoint {
+    private final SharedPreferences storage;
+    private final String parameters;
+
+    public static class State {
+        /** Count of geocaches already downloaded, the start index of a next request */
+        public final int offset;
+        /** Count of geocaches to download */
+        public final int total;
+        /** Position in the data file to continue writing at */
+        public final long filePosition;
+        /** Count of objects written to the data file before the position */
+        public final int storedCount;
+
+        State(int offset, int total, long filePosition, int storedCount) {
+            this.offset = offset;
+            this.total = total;
+            this.filePosition = filePosition;
+            this.storedCount = storedCount;
+        }
+    }
+
+    /**
+     * @param taskName   name of the task downloading geocaches
+     * @param parameters parameters of the download, filter preferences are added automatically
+     */
+    public DownloadCheckpoint(@NonNull Context context, @NonNull String taskName, Object... parameters) {
+        storage = context.getSharedPreferences(PrefConstants.DOWNLOAD_CHECKPOINT_STORAGE_NAME, Context.MODE_PRIVATE);
+        this.parameters = createParameters(context, taskName, parameters);
+    }
+
+    /**
+     * Returns a state of a failed download with the same parameters or null if the download
+     * can't be resumed.
+     */
+    @Nullable
+    public State restore(@NonNull File dataFile) {
+        if (!parameters.equals(storage.getString(PrefConstants.DOWNLOAD_CHECKPOINT__PARAMETERS, null)))
+            return null;
+
+        long time = storage.getLong(PrefConstants.DOWNLOAD_CHECKPOINT__TIME, 0);
+        long fileSize = storage.getLong(PrefConstants.DOWNLOAD_CHECKPOINT__FILE_SIZE, -1);
+        long fileLastModified = storage.getLong(PrefConstants.DOWNLOAD_CHECKPOINT__FILE_LAST_MODIFIED, -1);
+
+        if (System.currentTimeMillis() - time > AppConstants.DOWNLOAD_CHECKPOINT_TTL_MS
+                || fileSize != dataFile.length() || fileLastModified != dataFile.lastModified()) {
+            Timber.d("Checkpoint of the download is outdated.");
+            clear();
+            return null;
+        }
+
+        State state = new State(
+                storage.getInt(PrefConstants.DOWNLOAD_CHECKPOINT__OFFSET, 0),
+                storage.getInt(PrefConstants.DOWNLOAD_CHECKPOINT__TOTAL, 0),
+                storage.getLong(PrefConstants.DOWNLOAD_CHECKPOINT__FILE_POSITION, 0),
+                storage.getInt(PrefConstants.DOWNLOAD_CHECKPOINT__STORED_COUNT, 0)
+        );
+
+        if (state.offset <= 0 || state.filePosition <= 0 || state.filePosition > fileSize) {
+            clear();
+            return null;
+        }
+
+        Timber.i("Download resumed from the geocache %d of %d", state.offset, state.total);
+        return state;
+    }
+
+    /**
+     * Save the progress after a page was written to the data file and the writer was synced.
+     */
+    public void save(int offset, int total, long filePosition, int storedCount) {
+        storage.edit()
+                .putString(PrefConstants.DOWNLOAD_CHECKPOINT__PARAMETERS, parameters)
+                .putLong(PrefConstants.DOWNLOAD_CHECKPOINT__TIME, System.currentTimeMillis())
+                .putInt(PrefConstants.DOWNLOAD_CHECKPOINT__OFFSET, offset)
+                .putInt(PrefConstants.DOWNLOAD_CHECKPOINT__TOTAL, total)
+                .putLong(PrefConstants.DOWNLOAD_CHECKPOINT__FILE_POSITION, filePosition)
+                .putInt(PrefConstants.DOWNLOAD_CHECKPOINT__STORED_COUNT, storedCount)
+                .remove(PrefConstants.DOWNLOAD_CHECKPOINT__FILE_SIZE)
+                .remove(PrefConstants.DOWNLOAD_CHECKPOINT__FILE_LAST_MODIFIED)
+                .apply();
+    }
+
+    /**
+     * Keep the checkpoint of a failed download. It must be called after the writer of the data
+     * file is closed, the checkpoint is valid only until the data file is changed.
+     */
+    public void seal(@NonNull File dataFile) {
+        if (!parameters.equals(storage.getString(PrefConstants.DOWNLOAD_CHECKPOINT__PARAMETERS, null)))
+            return;
+
+        storage.edit()
+                .putLong(PrefConstants.DOWNLOAD_CHECKPOINT__FILE_SIZE, dataFile.length())
+                .putLong(PrefConstants.DOWNLOAD_CHECKPOINT__FILE_LAST_MODIFIED, dataFile.lastModified())
+                .apply();
+    }
+
+    public void clear() {
+        storage.edit().clear().apply();
+    }
+
+    private static String createParameters(Context context, String taskName, Object... parameters) {
+        StringBuilder sb = new StringBuilder(taskName);
+
+        for (Object parameter : parameters)
+            sb.append(';').append(parameter);
+
+        Account account = App.get(context).getAccountManager().getAccount();
+        sb.append(";account=").append(account != null ? account.name() : null);
+
+        // filters are created from preferences
+        Map<String, ?> preferences = new TreeMap<>(PreferenceManager.getDefaultSharedPreferences(context).getAll());
+        for (Map.Entry<String, ?> entry : preferences.entrySet()) {
+            String key = entry.getKey();
+
+            if (key.startsWith(PrefConstants.FILTER_CACHE_TYPE_PREFIX)
+                    || key.startsWith(PrefConstants.FILTER_CONTAINER_TYPE_PREFIX)
+                    || key.startsWith(PrefConstants.FILTER_CACHE_TYPE)
+                    || key.startsWith(PrefConstants.FILTER_CONTAINER_TYPE)
+                    || key.startsWith(PrefConstants.FILTER_DIFFICULTY)
+                    || key.startsWith(PrefConstants.FILTER_TERRAIN)
+                    || key.equals(PrefConstants.DOWNLOADING_SIMPLE_CACHE_DATA)
+                    || key.equals(PrefConstants.DOWNLOADING_COUNT_OF_LOGS)) {
+                sb.append(';').append(key).append('=').append(entry.getValue());
+            }
+        }
+
+        return sb.toString();
+    }
+}
@@ -0,0 +1,354 @@
+package com.arcao.geocaching4locus.base.storage;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteException;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.arcao.geocaching.api.GeocachingApi.ResultQuality;
+import com.arcao.geocaching4locus.base.constants.AppConstants;
+
+import org.apache.commons.collections4.CollectionUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import locus.api.objects.extra.Waypoint;
+import timber.log.Timber;
+
+/**
+ * Persistent store of already converted Locus Waypoints keyed by a geocache code. Each entry
+ * remembers the result quality and the count of logs it was downloaded with, so only entries
+ * with at least the same quality are served back and a fresh entry is never replaced by a worse
+ * one. Entries expire after {@link AppConstants#GEOCACHE_STORE_TTL_MS} and the store never holds
+ * more than {@link AppConstants#GEOCACHE_STORE_MAX_ENTRIES} entries (the oldest are evicted first).
+ * <p>
+ * Markers (see {@link locus.api.mapper.DataMapper#createLocusMarkers}) are stored with the log
+ * count {@link #LOG_COUNT_MARKER}, so they are served only to requests accepting markers. They
+ * have an own limit {@link AppConstants#GEOCACHE_STORE_MAX_MARKERS}.
+ * <p>
+ * The store also keeps geocache codes resolved from geocache GUIDs. A GUID never changes its
+ * geocache code, so these entries don't expire.
+ */
+public class GeocacheStore {
+    /** Log count of Waypoints with only data needed to show them on the map */
+    public static final int LOG_COUNT_MARKER = -1;
+
+    private static final String DATABASE_NAME = "geocache_store.db";
+    private static final int DATABASE_VERSION = 2;
+
+    private static final String TABLE_GEOCACHE = "geocache";
+    private static final String COLUMN_CODE = "code";
+    private static final String COLUMN_DATA = "data";
+    private static final String COLUMN_LAST_UPDATE_DATE = "last_update_date";
+    private static final String COLUMN_RESULT_QUALITY = "result_quality";
+    private static final String COLUMN_LOG_COUNT = "log_count";
+    private static final String COLUMN_STORED = "stored";
+
+    private static final String TABLE_GUID = "guid";
+    private static final String COLUMN_GUID = "guid";
+
+    private static final String[] QUERY_COLUMNS = {COLUMN_CODE, COLUMN_DATA, COLUMN_RESULT_QUALITY, COLUMN_LOG_COUNT};
+
+    private final DatabaseHelper helper;
+
+    public GeocacheStore(@NonNull Context context) {
+        helper = new DatabaseHelper(context.getApplicationContext());
+    }
+
+    /**
+     * Returns fresh stored Waypoints for given geocache codes. Codes which are not stored, are
+     * expired or were stored in a lower quality are not present in the result.
+     *
+     * @param geocacheCodes geocache codes to look up
+     * @param resultQuality required result quality
+     * @param logCount      required count of logs
+     * @return map of geocache code to Waypoint, in the order of requested codes
+     */
+    @NonNull
+    public Map<String, Waypoint> get(@Nullable Collection<String> geocacheCodes, @NonNull ResultQuality resultQuality, int logCount) {
+        return get(geocacheCodes, resultQuality, logCount, AppConstants.GEOCACHE_STORE_TTL_MS);
+    }
+
+    /**
+     * Returns stored Waypoints for given geocache codes stored at most maxAge ms ago, eg. an
+     * explicit update of geocaches accepts only geocaches downloaded a moment ago.
+     *
+     * @param geocacheCodes geocache codes to look up
+     * @param resultQuality required result quality
+     * @param logCount      required count of logs
+     * @param maxAge        max age of entries in ms, at most {@link AppConstants#GEOCACHE_STORE_TTL_MS}
+     * @return map of geocache code to Waypoint, in the order of requested codes
+     */
+    @NonNull
+    public Map<String, Waypoint> get(@Nullable Collection<String> geocacheCodes, @NonNull ResultQuality resultQuality, int logCount, long maxAge) {
+        if (CollectionUtils.isEmpty(geocacheCodes))
+            return Collections.emptyMap();
+
+        Map<String, Waypoint> result = new LinkedHashMap<>(geocacheCodes.size());
+        for (String code : geocacheCodes)
+            result.put(code, null);
+
+        try (Cursor cursor = queryFresh(helper.getReadableDatabase(), QUERY_COLUMNS, geocacheCodes,
+                System.currentTimeMillis() - Math.min(maxAge, AppConstants.GEOCACHE_STORE_TTL_MS))) {
+            while (cursor.moveToNext()) {
+                if (qualityRank(cursor.getInt(2)) < qualityRank(resultQuality.ordinal()) || cursor.getInt(3) < logCount)
+                    continue;
+
+                try {
+                    result.put(cursor.getString(0), new Waypoint(cursor.getBlob(1)));
+                } catch (IOException e) {
+                    Timber.e(e, "Unable to restore stored geocache %s", cursor.getString(0));
+                }
+            }
+        } catch (SQLiteException e) {
+            Timber.e(e);
+        }
+
+        // keep only found entries
+        result.values().removeAll(Collections.singleton(null));
+        return result;
+    }
+
+    @NonNull
+    public Map<String, Waypoint> get(@NonNull String[] geocacheCodes, @NonNull ResultQuality resultQuality, int logCount) {
+        return get(Arrays.asList(geocacheCodes), resultQuality, logCount);
+    }
+
+    @NonNull
+    public Map<String, Waypoint> get(@NonNull String[] geocacheCodes, @NonNull ResultQuality resultQuality, int logCount, long maxAge) {
+        return get(Arrays.asList(geocacheCodes), resultQuality, logCount, maxAge);
+    }
+
+    /**
+     * Stores Waypoints converted from the Geocaching API response and evicts expired or
+     * overflowing entries. A Waypoint is not stored if a fresh entry of the geocache has a better
+     * result quality or more logs, eg. a Live Map marker doesn't replace a full geocache.
+     *
+     * @param waypoints     Waypoints to store
+     * @param resultQuality result quality used to download geocaches
+     * @param logCount      count of logs used to download geocaches
+     */
+    public void put(@Nullable Collection<Waypoint> waypoints, @NonNull ResultQuality resultQuality, int logCount) {
+        if (CollectionUtils.isEmpty(waypoints))
+            return;
+
+        long now = System.currentTimeMillis();
+
+        try {
+            SQLiteDatabase db = helper.getWritableDatabase();
+            db.beginTransaction();
+            try {
+                Set<String> betterCodes = getBetterGeocacheCodes(db, waypoints, resultQuality, logCount, now);
+
+                ContentValues values = new ContentValues(6);
+                for (Waypoint waypoint : waypoints) {
+                    if (waypoint == null || waypoint.gcData == null || waypoint.gcData.getCacheID() == null)
+                        continue;
+
+                    if (betterCodes.contains(waypoint.gcData.getCacheID()))
+                        continue;
+
+                    values.put(COLUMN_CODE, waypoint.gcData.getCacheID());
+                    values.put(COLUMN_DATA, waypoint.getAsBytes());
+                    values.put(COLUMN_LAST_UPDATE_DATE, waypoint.gcData.getDateUpdated());
+                    values.put(COLUMN_RESULT_QUALITY, resultQuality.ordinal());
+                    values.put(COLUMN_LOG_COUNT, logCount);
+                    values.put(COLUMN_STORED, now);
+
+                    db.insertWithOnConflict(TABLE_GEOCACHE, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+                }
+
+                evict(db, now);
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+        } catch (SQLiteException e) {
+            Timber.e(e);
+        }
+    }
+
+    /**
+     * Returns a geocache code stored for the geocache GUID.
+     *
+     * @param guid geocache GUID
+     * @return geocache code or null if it's not stored
+     */
+    @Nullable
+    public String getGeocacheCode(@NonNull String guid) {
+        try (Cursor cursor = helper.getReadableDatabase().query(TABLE_GUID, new String[]{COLUMN_CODE},
+                COLUMN_GUID + " = ?", new String[]{guid.toLowerCase(Locale.US)}, null, null, null)) {
+            if (cursor.moveToFirst())
+                return cursor.getString(0);
+        } catch (SQLiteException e) {
+            Timber.e(e);
+        }
+        return null;
+    }
+
+    /**
+     * Stores a geocache code resolved for the geocache GUID.
+     *
+     * @param guid         geocache GUID
+     * @param geocacheCode geocache code
+     */
+    public void putGeocacheCode(@NonNull String guid, @NonNull String geocacheCode) {
+        ContentValues values = new ContentValues(2);
+        values.put(COLUMN_GUID, guid.toLowerCase(Locale.US));
+        values.put(COLUMN_CODE, geocacheCode);
+
+        try {
+            helper.getWritableDatabase().insertWithOnConflict(TABLE_GUID, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+        } catch (SQLiteException e) {
+            Timber.e(e);
+        }
+    }
+
+    /**
+     * Removes all stored geocaches.
+     */
+    public void clear() {
+        try {
+            helper.getWritableDatabase().delete(TABLE_GEOCACHE, null, null);
+        } catch (SQLiteException e) {
+            Timber.e(e);
+        }
+    }
+
+    /**
+     * Returns geocache codes which are not present in the stored Waypoints.
+     *
+     * @param geocacheCodes   requested geocache codes
+     * @param storedWaypoints Waypoints returned by {@link #get(Collection, ResultQuality, int)}
+     * @return geocache codes to download
+     */
+    @NonNull
+    public static String[] getMissingGeocacheCodes(@NonNull String[] geocacheCodes, @NonNull Map<String, Waypoint> storedWaypoints) {
+        if (storedWaypoints.isEmpty())
+            return geocacheCodes;
+
+        List<String> missing = new ArrayList<>(geocacheCodes.length);
+        for (String code : geocacheCodes) {
+            if (!storedWaypoints.containsKey(code))
+                missing.add(code);
+        }
+        return missing.toArray(new String[missing.size()]);
+    }
+
+    /**
+     * Returns codes of geocaches with a fresh entry better than the given quality and log count.
+     */
+    @NonNull
+    private static Set<String> getBetterGeocacheCodes(@NonNull SQLiteDatabase db, @NonNull Collection<Waypoint> waypoints,
+                                                      @NonNull ResultQuality resultQuality, int logCount, long now) {
+        List<String> codes = new ArrayList<>(waypoints.size());
+        for (Waypoint waypoint : waypoints) {
+            if (waypoint != null && waypoint.gcData != null && waypoint.gcData.getCacheID() != null)
+                codes.add(waypoint.gcData.getCacheID());
+        }
+
+        Set<String> result = new HashSet<>();
+        if (codes.isEmpty())
+            return result;
+
+        try (Cursor cursor = queryFresh(db, new String[]{COLUMN_CODE, COLUMN_RESULT_QUALITY, COLUMN_LOG_COUNT}, codes,
+                now - AppConstants.GEOCACHE_STORE_TTL_MS)) {
+            while (cursor.moveToNext()) {
+                if (qualityRank(cursor.getInt(1)) > qualityRank(resultQuality.ordinal()) || cursor.getInt(2) > logCount)
+                    result.add(cursor.getString(0));
+            }
+        }
+        return result;
+    }
+
+    @NonNull
+    private static Cursor queryFresh(@NonNull SQLiteDatabase db, @NonNull String[] columns,
+                                     @NonNull Collection<String> geocacheCodes, long minStored) {
+        String[] selectionArgs = new String[geocacheCodes.size() + 1];
+        StringBuilder selection = new StringBuilder(COLUMN_STORED).append(" >= ? AND ").append(COLUMN_CODE).append(" IN (");
+
+        selectionArgs[0] = String.valueOf(minStored);
+        int i = 1;
+        for (String code : geocacheCodes) {
+            if (i > 1)
+                selection.append(',');
+            selection.append('?');
+            selectionArgs[i++] = code;
+        }
+        selection.append(')');
+
+        return db.query(TABLE_GEOCACHE, columns, selection.toString(), selectionArgs, null, null, null);
+    }
+
+    private void evict(@NonNull SQLiteDatabase db, long now) {
+        db.delete(TABLE_GEOCACHE, COLUMN_STORED + " < ?",
+                new String[]{String.valueOf(now - AppConstants.GEOCACHE_STORE_TTL_MS)});
+
+        // markers and other entries have separate limits
+        evictOverflow(db, COLUMN_LOG_COUNT + " = ?", AppConstants.GEOCACHE_STORE_MAX_MARKERS);
+        evictOverflow(db, COLUMN_LOG_COUNT + " <> ?", AppConstants.GEOCACHE_STORE_MAX_ENTRIES);
+    }
+
+    private static void evictOverflow(@NonNull SQLiteDatabase db, @NonNull String markerSelection, int maxEntries) {
+        String marker = String.valueOf(LOG_COUNT_MARKER);
+        db.delete(TABLE_GEOCACHE, markerSelection + " AND " + COLUMN_CODE + " NOT IN (SELECT " + COLUMN_CODE
+                        + " FROM " + TABLE_GEOCACHE + " WHERE " + markerSelection
+                        + " ORDER BY " + COLUMN_STORED + " DESC LIMIT ?)",
+                new String[]{marker, marker, String.valueOf(maxEntries)});
+    }
+
+    private static int qualityRank(int resultQualityOrdinal) {
+        switch (ResultQuality.values()[resultQualityOrdinal]) {
+            case FULL:
+                return 2;
+            case SUMMARY:
+                return 1;
+            case LITE:
+            default:
+                return 0;
+        }
+    }
+
+    private static class DatabaseHelper extends SQLiteOpenHelper {
+        DatabaseHelper(Context context) {
+            super(context, DATABASE_NAME, null, DATABASE_VERSION);
+        }
+
+        @Override
+        public void onCreate(SQLiteDatabase db) {
+            db.execSQL("CREATE TABLE " + TABLE_GEOCACHE + " ("
+                    + COLUMN_CODE + " TEXT PRIMARY KEY NOT NULL, "
+                    + COLUMN_DATA + " BLOB NOT NULL, "
+                    + COLUMN_LAST_UPDATE_DATE + " INTEGER NOT NULL, "
+                    + COLUMN_RESULT_QUALITY + " INTEGER NOT NULL, "
+                    + COLUMN_LOG_COUNT + " INTEGER NOT NULL, "
+                    + COLUMN_STORED + " INTEGER NOT NULL)");
+            db.execSQL("CREATE INDEX " + TABLE_GEOCACHE + "_" + COLUMN_STORED + " ON " + TABLE_GEOCACHE + " (" + COLUMN_STORED + ")");
+            db.execSQL("CREATE TABLE " + TABLE_GUID + " ("
+                    + COLUMN_GUID + " TEXT PRIMARY KEY NOT NULL, "
+                    + COLUMN_CODE + " TEXT NOT NULL)");
+        }
+
+        @Override
+        public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+            // it's only a cache, start from scratch
+            db.execSQL("DROP TABLE IF EXISTS " + TABLE_GEOCACHE);
+            db.execSQL("DROP TABLE IF EXISTS " + TABLE_GUID);
+            onCreate(db);
+        }
+    }
+}
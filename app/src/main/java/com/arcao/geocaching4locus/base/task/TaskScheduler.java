@@ -0,0 +1,188 @@
+package com.arcao.geocaching4locus.base.task;
+
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+
+import com.arcao.geocaching4locus.base.constants.AppConstants;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import timber.log.Timber;
+
+/**
+ * Runs background work of {@link UserTask}s in separate lanes, so a long running task in one
+ * lane doesn't block tasks in other lanes. Each lane is a pool of a fixed count of threads
+ * (idle threads are stopped), tasks above that count wait in a queue of the lane.
+ * <p>
+ * For each task name a time spent waiting in the queue and a run time are collected.
+ */
+public class TaskScheduler {
+    public enum Lane {
+        /** Tasks mostly waiting for the network, eg. Geocaching Live API calls */
+        NETWORK,
+        /** Tasks mostly waiting for Locus Map, eg. reading and updating many waypoints */
+        LOCUS
+    }
+
+    private static final int KEEP_ALIVE = 10; // in sec
+
+    private static final TaskScheduler INSTANCE = new TaskScheduler();
+
+    private final Map<Lane, ThreadPoolExecutor> executors = new EnumMap<>(Lane.class);
+    private final Map<String, Stats> stats = new HashMap<>();
+
+    private static class Stats {
+        final Lane lane;
+        long count;
+        long totalWaitTime;
+        long maxWaitTime;
+        long totalRunTime;
+        long maxRunTime;
+
+        Stats(Lane lane) {
+            this.lane = lane;
+        }
+    }
+
+    private TaskScheduler() {
+        executors.put(Lane.NETWORK, createExecutor(Lane.NETWORK, AppConstants.TASK_SCHEDULER_NETWORK_THREADS));
+        executors.put(Lane.LOCUS, createExecutor(Lane.LOCUS, AppConstants.TASK_SCHEDULER_LOCUS_THREADS));
+    }
+
+    @NonNull
+    public static TaskScheduler getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Change a count of threads running tasks of the lane. Already queued tasks are kept.
+     */
+    public void setLaneSize(@NonNull Lane lane, int threads) {
+        if (threads < 1)
+            throw new IllegalArgumentException("Lane size must be at least 1");
+
+        ThreadPoolExecutor executor = executors.get(lane);
+        synchronized (executor) {
+            // the maximum pool size must never be lower than the core pool size
+            if (threads > executor.getMaximumPoolSize()) {
+                executor.setMaximumPoolSize(threads);
+                executor.setCorePoolSize(threads);
+            } else {
+                executor.setCorePoolSize(threads);
+                executor.setMaximumPoolSize(threads);
+            }
+        }
+    }
+
+    public int getLaneSize(@NonNull Lane lane) {
+        return executors.get(lane).getMaximumPoolSize();
+    }
+
+    /**
+     * Count of tasks waiting in the queue of the lane for a free thread.
+     */
+    public int getQueuedCount(@NonNull Lane lane) {
+        return executors.get(lane).getQueue().size();
+    }
+
+    /**
+     * Run a task in the lane.
+     *
+     * @param name name of the task which collected times are reported for
+     */
+    public void execute(@NonNull Lane lane, @NonNull String name, @NonNull Runnable task) {
+        final long queuedTime = SystemClock.elapsedRealtime();
+
+        executors.get(lane).execute(() -> {
+            long startTime = SystemClock.elapsedRealtime();
+            try {
+                task.run();
+            } finally {
+                onTaskFinished(lane, name, startTime - queuedTime, SystemClock.elapsedRealtime() - startTime);
+            }
+        });
+    }
+
+    /**
+     * Average time in ms the named task waited in the queue.
+     */
+    public synchronized long getAverageWaitTime(@NonNull String name) {
+        Stats taskStats = stats.get(name);
+        return taskStats != null ? taskStats.totalWaitTime / taskStats.count : 0;
+    }
+
+    /**
+     * Average time in ms the named task was running.
+     */
+    public synchronized long getAverageRunTime(@NonNull String name) {
+        Stats taskStats = stats.get(name);
+        return taskStats != null ? taskStats.totalRunTime / taskStats.count : 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder sb = new StringBuilder("TaskScheduler{");
+
+        boolean first = true;
+        for (Lane lane : Lane.values()) {
+            ThreadPoolExecutor executor = executors.get(lane);
+
+            if (!first)
+                sb.append(", ");
+            first = false;
+
+            sb.append(lane)
+                    .append("={threads=").append(executor.getMaximumPoolSize())
+                    .append(", active=").append(executor.getActiveCount())
+                    .append(", queued=").append(executor.getQueue().size())
+                    .append('}');
+        }
+
+        for (Map.Entry<String, Stats> entry : stats.entrySet()) {
+            Stats taskStats = entry.getValue();
+
+            sb.append(", ").append(entry.getKey())
+                    .append("={lane=").append(taskStats.lane)
+                    .append(", runs=").append(taskStats.count)
+                    .append(", avgWaitMs=").append(taskStats.totalWaitTime / taskStats.count)
+                    .append(", maxWaitMs=").append(taskStats.maxWaitTime)
+                    .append(", avgRunMs=").append(taskStats.totalRunTime / taskStats.count)
+                    .append(", maxRunMs=").append(taskStats.maxRunTime)
+                    .append('}');
+        }
+
+        return sb.append('}').toString();
+    }
+
+    private synchronized void onTaskFinished(Lane lane, String name, long waitTime, long runTime) {
+        Stats taskStats = stats.get(name);
+        if (taskStats == null) {
+            taskStats = new Stats(lane);
+            stats.put(name, taskStats);
+        }
+
+        taskStats.count++;
+        taskStats.totalWaitTime += waitTime;
+        taskStats.maxWaitTime = Math.max(taskStats.maxWaitTime, waitTime);
+        taskStats.totalRunTime += runTime;
+        taskStats.maxRunTime = Math.max(taskStats.maxRunTime, runTime);
+
+        Timber.d("%s finished in %s lane: waited %d ms, ran %d ms", name, lane, waitTime, runTime);
+    }
+
+    private static ThreadPoolExecutor createExecutor(Lane lane, int threads) {
+        AtomicInteger count = new AtomicInteger(1);
+        String namePrefix = "UserTask " + lane.name() + " #";
+
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> new Thread(r, namePrefix + count.getAndIncrement()));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+}
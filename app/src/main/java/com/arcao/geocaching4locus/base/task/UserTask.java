@@ -28,18 +28,12 @@ import android.os.Message;
 import android.os.Process;
 import android.support.annotation.NonNull;
 
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Executor;
 import java.util.concurrent.FutureTask;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.ThreadFactory;
-import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
-import java.util.concurrent.atomic.AtomicInteger;
 
 import timber.log.Timber;
 
@@ -162,25 +156,6 @@ import timber.log.Timber;
  * </ul>
  */
 public abstract class UserTask<Params, Progress, Result> {
-    private static final int CORE_POOL_SIZE = 1;
-    private static final int MAXIMUM_POOL_SIZE = 10;
-    private static final int KEEP_ALIVE = 10;
-
-    private static final BlockingQueue<Runnable> WORK_QUEUE =
-            new LinkedBlockingQueue<>();
-
-    private static final ThreadFactory THREAD_FACTORY = new ThreadFactory() {
-        private final AtomicInteger count = new AtomicInteger(1);
-
-        @Override
-        public Thread newThread(@NonNull Runnable r) {
-            return new Thread(r, "UserTask #" + count.getAndIncrement());
-        }
-    };
-
-    private static final Executor EXECUTOR = new ThreadPoolExecutor(CORE_POOL_SIZE,
-            MAXIMUM_POOL_SIZE, KEEP_ALIVE, TimeUnit.SECONDS, WORK_QUEUE, THREAD_FACTORY);
-
     private static final int MESSAGE_POST_RESULT = 0x1;
     private static final int MESSAGE_POST_PROGRESS = 0x2;
     private static final int MESSAGE_POST_CANCEL = 0x3;
@@ -289,6 +264,17 @@ public abstract class UserTask<Params, Progress, Result> {
     @SuppressWarnings("unchecked")
     protected abstract Result doInBackground(Params... params) throws Exception;
 
+    /**
+     * Returns the lane of {@link TaskScheduler} the task runs in. Tasks mostly waiting for
+     * the network run in {@link TaskScheduler.Lane#NETWORK} lane by default.
+     *
+     * @return The lane to run {@link #doInBackground(Object[])} in.
+     */
+    @NonNull
+    protected TaskScheduler.Lane getLane() {
+        return TaskScheduler.Lane.NETWORK;
+    }
+
     /**
      * Runs on the UI thread before {@link #doInBackground(Object[])}.
      *
@@ -453,7 +439,7 @@ public abstract class UserTask<Params, Progress, Result> {
         onPreExecute();
 
         worker.params = params;
-        EXECUTOR.execute(future);
+        TaskScheduler.getInstance().execute(getLane(), getClass().getSimpleName(), future);
 
         return this;
     }
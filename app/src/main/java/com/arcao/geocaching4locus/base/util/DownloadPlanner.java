@@ -0,0 +1,74 @@
+package com.arcao.geocaching4locus.base.util;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.arcao.geocaching.api.GeocachingApi.ResultQuality;
+import com.arcao.geocaching4locus.authentication.util.AccountManager;
+import com.arcao.geocaching4locus.authentication.util.AccountRestrictions;
+
+import java.util.Date;
+
+import timber.log.Timber;
+
+/**
+ * Splits a download of geocaches to a FULL tier fitting to the remaining full geocache limit
+ * of the account and a LITE tier with geocaches over the limit. Geocaches are expected to be
+ * sorted by priority, so the last ones are moved to the LITE tier. They are not queued for
+ * a later download, the user can update them again after the limit is renewed.
+ */
+public class DownloadPlanner {
+    private final AccountManager accountManager;
+
+    public static class Plan {
+        /** Count of geocaches downloaded in the requested result quality */
+        public final int count;
+        /** Count of geocaches over the limit downloaded in LITE quality */
+        public final int liteCount;
+        /** Remaining full geocache limit before the download */
+        public final long remainingFullCount;
+        /** Time when the full geocache limit is renewed, null when the limit is not reached */
+        @Nullable
+        public final Date renewTime;
+
+        Plan(int count, int liteCount, long remainingFullCount, @Nullable Date renewTime) {
+            this.count = count;
+            this.liteCount = liteCount;
+            this.remainingFullCount = remainingFullCount;
+            this.renewTime = renewTime;
+        }
+
+        public boolean isLimited() {
+            return liteCount > 0;
+        }
+    }
+
+    public DownloadPlanner(@NonNull AccountManager accountManager) {
+        this.accountManager = accountManager;
+    }
+
+    /**
+     * Plan a download of geocaches. Only FULL downloads are limited.
+     *
+     * @param count         count of geocaches to download
+     * @param resultQuality requested result quality
+     */
+    @NonNull
+    public Plan plan(int count, @NonNull ResultQuality resultQuality) {
+        if (resultQuality != ResultQuality.FULL)
+            return new Plan(count, 0, 0, null);
+
+        AccountRestrictions restrictions = accountManager.getRestrictions();
+        long remainingFullCount = restrictions.getRemainingFullGeocacheCount();
+
+        int fullCount = (int) Math.min(count, remainingFullCount);
+        if (fullCount == count)
+            return new Plan(count, 0, remainingFullCount, null);
+
+        Plan plan = new Plan(fullCount, count - fullCount, remainingFullCount, restrictions.getRenewFullGeocacheLimit());
+        Timber.i("Full geocache limit: %d remaining, %d geocaches over the limit, renewed at %s", remainingFullCount,
+                plan.liteCount, plan.renewTime);
+
+        return plan;
+    }
+}
@@ -0,0 +1,106 @@
+package com.arcao.geocaching4locus.base.util;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.support.annotation.NonNull;
+
+import com.arcao.geocaching.api.GeocachingApi.ResultQuality;
+import com.arcao.geocaching4locus.base.constants.AppConstants;
+import com.arcao.geocaching4locus.base.constants.PrefConstants;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import timber.log.Timber;
+
+/**
+ * Adapts a count of geocaches downloaded by one request (page size) for each result quality.
+ * The page size grows by {@link AppConstants#ADAPTIVE_DOWNLOADING_STEP} while a throughput
+ * (an exponentially weighted moving average of downloaded geocaches per second) doesn't drop,
+ * and it's halved when a request takes more than
+ * {@link AppConstants#ADAPTIVE_DOWNLOADING_MAX_TIME_MS}. The learned page size is shared by
+ * all tasks and kept across app restarts, so a new download starts with it.
+ */
+public class ItemsPerRequestController {
+    private static final float THROUGHPUT_WEIGHT = 0.3F;
+    // a lower throughput than the average is still treated as the same
+    private static final float THROUGHPUT_TOLERANCE = 0.1F;
+
+    private final SharedPreferences preferences;
+    private final Map<ResultQuality, State> states = new EnumMap<>(ResultQuality.class);
+
+    private static class State {
+        int itemsPerRequest;
+        float cachesPerSecond;
+    }
+
+    public ItemsPerRequestController(Context context) {
+        // own storage, listeners of default preferences don't have to react to each request
+        preferences = context.getSharedPreferences(PrefConstants.ADAPTIVE_DOWNLOADING_STORAGE_NAME, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * Returns the page size to start a download with.
+     */
+    public synchronized int getItemsPerRequest(@NonNull ResultQuality resultQuality) {
+        return getState(resultQuality).itemsPerRequest;
+    }
+
+    /**
+     * Update the page size with a finished request.
+     *
+     * @param resultQuality   result quality of the request
+     * @param requestedCount  count of geocaches the request was made for, it can be lower than
+     *                        the page size, eg. when some geocaches were already stored
+     * @param downloadedCount count of returned geocaches
+     * @param requestDuration duration of the request in ms
+     * @return page size for the next request
+     */
+    public synchronized int onRequestFinished(@NonNull ResultQuality resultQuality, int requestedCount, int downloadedCount, long requestDuration) {
+        State state = getState(resultQuality);
+
+        float cachesPerSecond = downloadedCount * 1000F / Math.max(requestDuration, 1);
+        float averageCachesPerSecond = state.cachesPerSecond;
+
+        if (requestDuration > AppConstants.ADAPTIVE_DOWNLOADING_MAX_TIME_MS) {
+            state.itemsPerRequest = Math.max(Math.min(state.itemsPerRequest, requestedCount) / 2, AppConstants.ADAPTIVE_DOWNLOADING_MIN_ITEMS);
+        } else if (requestedCount >= state.itemsPerRequest && downloadedCount >= requestedCount) {
+            // only full pages tell something about the page size
+            if (cachesPerSecond >= averageCachesPerSecond * (1 - THROUGHPUT_TOLERANCE)) {
+                state.itemsPerRequest = Math.min(state.itemsPerRequest + AppConstants.ADAPTIVE_DOWNLOADING_STEP, AppConstants.ADAPTIVE_DOWNLOADING_MAX_ITEMS);
+            } else {
+                state.itemsPerRequest = Math.max(state.itemsPerRequest - AppConstants.ADAPTIVE_DOWNLOADING_STEP, AppConstants.ADAPTIVE_DOWNLOADING_MIN_ITEMS);
+            }
+        }
+
+        if (downloadedCount > 0) {
+            state.cachesPerSecond = averageCachesPerSecond > 0
+                    ? averageCachesPerSecond + THROUGHPUT_WEIGHT * (cachesPerSecond - averageCachesPerSecond)
+                    : cachesPerSecond;
+        }
+
+        preferences.edit()
+                .putInt(PrefConstants.ADAPTIVE_DOWNLOADING__ITEMS_PER_REQUEST_PREFIX + resultQuality.name(), state.itemsPerRequest)
+                .putFloat(PrefConstants.ADAPTIVE_DOWNLOADING__CACHES_PER_SECOND_PREFIX + resultQuality.name(), state.cachesPerSecond)
+                .apply();
+
+        Timber.d("%s: %d caches in %d ms, %.1f caches/s on average, next page size: %d", resultQuality,
+                downloadedCount, requestDuration, state.cachesPerSecond, state.itemsPerRequest);
+
+        return state.itemsPerRequest;
+    }
+
+    private State getState(ResultQuality resultQuality) {
+        State state = states.get(resultQuality);
+        if (state == null) {
+            state = new State();
+
+            int itemsPerRequest = preferences.getInt(PrefConstants.ADAPTIVE_DOWNLOADING__ITEMS_PER_REQUEST_PREFIX + resultQuality.name(), AppConstants.ITEMS_PER_REQUEST);
+            state.itemsPerRequest = Math.min(Math.max(itemsPerRequest, AppConstants.ADAPTIVE_DOWNLOADING_MIN_ITEMS), AppConstants.ADAPTIVE_DOWNLOADING_MAX_ITEMS);
+            state.cachesPerSecond = preferences.getFloat(PrefConstants.ADAPTIVE_DOWNLOADING__CACHES_PER_SECOND_PREFIX + resultQuality.name(), 0);
+
+            states.put(resultQuality, state);
+        }
+        return state;
+    }
+}
@@ -0,0 +1,79 @@
+package com.arcao.geocaching4locus.base.util;
+
+import android.support.annotation.NonNull;
+
+import com.arcao.geocaching.api.GeocachingApi.ResultQuality;
+import com.arcao.geocaching4locus.base.constants.AppConstants;
+
+import timber.log.Timber;
+
+/**
+ * Watches a free space in the heap during a download of geocaches and limits the count of
+ * geocaches held in the memory at once, so a large download doesn't fail on OutOfMemoryError on
+ * a device with a small heap. Sizes of geocaches are only estimated, the limit is computed from
+ * the current heap usage before each request.
+ */
+public class MemoryGovernor {
+    private final Runtime runtime = Runtime.getRuntime();
+    private final long geocacheSize;
+
+    /**
+     * @param resultQuality result quality of downloaded geocaches
+     * @param logCount      count of logs downloaded with each geocache
+     */
+    public MemoryGovernor(@NonNull ResultQuality resultQuality, int logCount) {
+        geocacheSize = resultQuality == ResultQuality.LITE
+                ? AppConstants.MEMORY_GOVERNOR_LITE_GEOCACHE_SIZE
+                : AppConstants.MEMORY_GOVERNOR_FULL_GEOCACHE_SIZE + logCount * AppConstants.MEMORY_GOVERNOR_LOG_SIZE;
+    }
+
+    /**
+     * Returns true if the heap is so small that downloaded geocaches should be written as soon
+     * as possible.
+     */
+    public static boolean isLowMemoryDevice() {
+        return Runtime.getRuntime().maxMemory() <= AppConstants.LOW_MEMORY_THRESHOLD;
+    }
+
+    /**
+     * Size of the heap in bytes which can still be allocated.
+     */
+    public long getHeadroom() {
+        return runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+    }
+
+    /**
+     * Returns true if the headroom is lower than the reserve kept for the rest of the app.
+     */
+    public boolean isLow() {
+        return getHeadroom() < AppConstants.MEMORY_GOVERNOR_RESERVE;
+    }
+
+    /**
+     * Limit the count of geocaches in the next request to fit to the headroom. A page is decoded,
+     * converted and written together, so each geocache is counted twice.
+     *
+     * @return count of geocaches to request, at least one
+     */
+    public int limitItemsPerRequest(int itemsPerRequest) {
+        long available = getHeadroom() - AppConstants.MEMORY_GOVERNOR_RESERVE;
+        int limit = (int) Math.max(1, Math.min(Integer.MAX_VALUE, available / (2 * geocacheSize)));
+
+        if (limit >= itemsPerRequest)
+            return itemsPerRequest;
+
+        Timber.i("Low memory: %d bytes free, %d geocaches requested instead of %d", available, limit, itemsPerRequest);
+        return limit;
+    }
+
+    /**
+     * Count of geocaches converted and written together. A low memory device writes small
+     * chunks, so converted geocaches are released sooner.
+     */
+    public int getChunkSize(int itemsPerRequest) {
+        if (!isLowMemoryDevice() && !isLow())
+            return itemsPerRequest;
+
+        return Math.min(itemsPerRequest, AppConstants.MEMORY_GOVERNOR_CHUNK_SIZE);
+    }
+}
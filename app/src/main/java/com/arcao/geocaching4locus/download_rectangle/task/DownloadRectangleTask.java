@@ -8,9 +8,9 @@ import android.support.annotation.NonNull;
 
 import com.arcao.geocaching.api.GeocachingApi;
 import com.arcao.geocaching.api.GeocachingApi.ResultQuality;
-import com.arcao.geocaching.api.GeocachingApiFactory;
 import com.arcao.geocaching.api.data.Geocache;
 import com.arcao.geocaching.api.data.SearchForGeocachesRequest;
+import com.arcao.geocaching.api.downloader.TokenBucketRateLimiter;
 import com.arcao.geocaching.api.data.type.ContainerType;
 import com.arcao.geocaching.api.data.type.GeocacheType;
 import com.arcao.geocaching.api.exception.GeocachingApiException;
@@ -27,11 +27,12 @@ import com.arcao.geocaching.api.filter.PointRadiusFilter;
 import com.arcao.geocaching.api.filter.TerrainFilter;
 import com.arcao.geocaching.api.filter.ViewportFilter;
 import com.arcao.geocaching4locus.App;
-import com.arcao.geocaching4locus.authentication.task.GeocachingApiLoginTask;
 import com.arcao.geocaching4locus.authentication.util.AccountManager;
-import com.arcao.geocaching4locus.base.constants.AppConstants;
+import com.arcao.geocaching4locus.authentication.util.SessionManager;
+import com.arcao.geocaching4locus.base.storage.DownloadCheckpoint;
+import com.arcao.geocaching4locus.base.storage.GeocacheStore;
 import com.arcao.geocaching4locus.base.task.UserTask;
-import com.arcao.geocaching4locus.base.util.DownloadingUtil;
+import com.arcao.geocaching4locus.base.util.ItemsPerRequestController;
 import com.arcao.geocaching4locus.base.util.PreferenceUtil;
 import com.arcao.geocaching4locus.error.exception.IntendedException;
 import com.arcao.geocaching4locus.error.exception.LocusMapRuntimeException;
@@ -76,6 +77,9 @@ public class DownloadRectangleTask extends UserTask<Void, Integer, Intent> {
     private final SharedPreferences preferences;
     private final WeakReference<TaskListener> taskListenerRef;
     private final AccountManager accountManager;
+    private final SessionManager sessionManager;
+    private final GeocacheStore geocacheStore;
+    private final ItemsPerRequestController itemsPerRequestController;
 
     public interface TaskListener {
         void onTaskFinished(Intent intent);
@@ -90,6 +94,9 @@ public class DownloadRectangleTask extends UserTask<Void, Integer, Intent> {
         taskListenerRef = new WeakReference<>(listener);
 
         accountManager = App.get(context).getAccountManager();
+        sessionManager = App.get(context).getSessionManager();
+        geocacheStore = App.get(context).getGeocacheStore();
+        itemsPerRequestController = App.get(context).getItemsPerRequestController();
         preferences = PreferenceManager.getDefaultSharedPreferences(this.context);
     }
 
@@ -120,10 +127,24 @@ public class DownloadRectangleTask extends UserTask<Void, Integer, Intent> {
                 liveMapData.getMapCenterCoordinates().toString(), liveMapData.getMapTopLeftCoordinates().toString(), liveMapData.getMapBottomRightCoordinates().toString());
 
         int current = 0;
+        int count = 0;
+
+        // continue a failed download with the same parameters
+        DownloadCheckpoint checkpoint = new DownloadCheckpoint(context, PACK_WAYPOINTS_NAME, liveMapData.getMapCenterCoordinates(),
+                liveMapData.getMapTopLeftCoordinates(), liveMapData.getMapBottomRightCoordinates());
+        DownloadCheckpoint.State checkpointState = checkpoint.restore(dataFile);
+        if (checkpointState != null) {
+            current = checkpointState.offset;
+            count = checkpointState.total;
+        }
 
-        try (StoreableWriter writer = new StoreableWriter(ActionDisplayPointsExtended.getCacheFileOutputStream())) {
-            GeocachingApi api = GeocachingApiFactory.create();
-            GeocachingApiLoginTask.create(context, api).perform();
+        try (StoreableWriter writer = checkpointState != null
+                ? StoreableWriter.resume(dataFile, checkpointState.filePosition, checkpointState.storedCount)
+                : new StoreableWriter(ActionDisplayPointsExtended.getCacheFileOutputStream());
+             SessionManager.Session session = sessionManager.open(TokenBucketRateLimiter.Priority.NORMAL);
+             // other searches must not break paging of the result
+             SessionManager.SearchLock searchLock = sessionManager.lockPaging()) {
+            GeocachingApi api = session.getApi();
 
             ResultQuality resultQuality = accountManager.isPremium() ? ResultQuality.FULL : ResultQuality.LITE;
             int logCount = preferences.getInt(DOWNLOADING_COUNT_OF_LOGS, 5);
@@ -134,10 +155,23 @@ public class DownloadRectangleTask extends UserTask<Void, Integer, Intent> {
                 logCount = 0;
             }
 
-            int cachesPerRequest = AppConstants.ITEMS_PER_REQUEST;
-            int count = AppConstants.ITEMS_PER_REQUEST;
+            int cachesPerRequest = itemsPerRequestController.getItemsPerRequest(resultQuality);
+            if (current == 0) {
+                count = cachesPerRequest;
+            } else {
+                publishProgress(current, count);
+
+                // repeat the search to continue with getMoreGeocaches, LITE to not spend the quota
+                api.searchForGeocaches(SearchForGeocachesRequest.builder()
+                        .resultQuality(ResultQuality.LITE)
+                        .maxPerPage(1)
+                        .addFilters(createFilters())
+                        .build()
+                );
+            }
 
             while (current < count) {
+                int requestedCount = Math.min(cachesPerRequest, count - current);
                 long startTimeMillis = System.currentTimeMillis();
 
                 List<Geocache> cachesToAdd;
@@ -145,16 +179,19 @@ public class DownloadRectangleTask extends UserTask<Void, Integer, Intent> {
                 if (current == 0) {
                     cachesToAdd = api.searchForGeocaches(SearchForGeocachesRequest.builder()
                             .resultQuality(resultQuality)
-                            .maxPerPage(Math.min(cachesPerRequest, count - current))
+                            .maxPerPage(requestedCount)
                             .geocacheLogCount(logCount)
                             .addFilters(createFilters())
                             .build()
                     );
                     count = Math.min(api.getLastSearchResultsFound(), LIVEMAP_CACHES_COUNT);
                 } else {
-                    cachesToAdd = api.getMoreGeocaches(resultQuality, current, Math.min(cachesPerRequest, count - current), logCount, 0);
+                    cachesToAdd = api.getMoreGeocaches(resultQuality, current, requestedCount, logCount, 0);
                 }
 
+                cachesPerRequest = itemsPerRequestController.onRequestFinished(resultQuality, requestedCount,
+                        cachesToAdd.size(), System.currentTimeMillis() - startTimeMillis);
+
                 accountManager.getRestrictions().updateLimits(api.getLastGeocacheLimits());
 
                 if (isCancelled())
@@ -163,8 +200,13 @@ public class DownloadRectangleTask extends UserTask<Void, Integer, Intent> {
                 if (cachesToAdd.isEmpty())
                     break;
 
+                List<Waypoint> waypoints = simpleCacheData
+                        ? mapper.createLocusMarkers(cachesToAdd)
+                        : mapper.createLocusWaypoints(cachesToAdd);
+                geocacheStore.put(waypoints, resultQuality, simpleCacheData ? GeocacheStore.LOG_COUNT_MARKER : logCount);
+
                 PackWaypoints pw = new PackWaypoints(PACK_WAYPOINTS_NAME);
-                for (Waypoint wpt : mapper.createLocusWaypoints(cachesToAdd)) {
+                for (Waypoint wpt : waypoints) {
                     if (simpleCacheData) {
                         wpt.setExtraOnDisplay(context.getPackageName(), UpdateActivity.class.getName(), UpdateActivity.PARAM_SIMPLE_CACHE_ID, wpt.gcData.getCacheID());
                     }
@@ -177,14 +219,21 @@ public class DownloadRectangleTask extends UserTask<Void, Integer, Intent> {
                 current += cachesToAdd.size();
                 publishProgress(current, count);
 
-                cachesPerRequest = DownloadingUtil.computeItemsPerRequest(cachesPerRequest, startTimeMillis);
+                try {
+                    checkpoint.save(current, count, writer.sync(), writer.getSize());
+                } catch (IOException e) {
+                    // the download can still continue, only it can't be resumed
+                    Timber.w(e);
+                }
             }
 
             Timber.i("found caches: %s", current);
         } catch (Exception e) {
-            throw handleException(e, dataFile, current);
+            throw handleException(e, dataFile, current, checkpoint);
         }
 
+        checkpoint.clear();
+
         if (current > 0) {
             try {
                 return ActionDisplayPointsExtended.createSendPacksIntent(dataFile, true, true);
@@ -196,8 +245,12 @@ public class DownloadRectangleTask extends UserTask<Void, Integer, Intent> {
         }
     }
 
-    private Exception handleException(@NonNull Exception e, @NonNull File dataFile, int itemsStored) {
-        if (e instanceof InvalidSessionException) accountManager.invalidateOAuthToken();
+    private Exception handleException(@NonNull Exception e, @NonNull File dataFile, int itemsStored,
+                                      @NonNull DownloadCheckpoint checkpoint) {
+        // the data file is closed now, a retry can continue from the last checkpoint
+        checkpoint.seal(dataFile);
+
+        if (e instanceof InvalidSessionException) sessionManager.invalidate();
         if (e instanceof IOException) e = new GeocachingApiException(e.getMessage(), e);
         if (itemsStored == 0) return e;
 
@@ -8,6 +8,9 @@ import android.support.annotation.Nullable;
 import android.support.v7.widget.LinearLayoutManager;
 import android.support.v7.widget.RecyclerView;
 import android.view.LayoutInflater;
+import android.view.Menu;
+import android.view.MenuInflater;
+import android.view.MenuItem;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.TextView;
@@ -65,6 +68,13 @@ public class BookmarkListFragment extends Fragment implements BookmarkListRetrie
         }
     }
 
+    @Override
+    public void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+
+        setHasOptionsMenu(true);
+    }
+
     @Nullable
     @Override
     public View onCreateView(LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
@@ -91,13 +101,20 @@ public class BookmarkListFragment extends Fragment implements BookmarkListRetrie
         }
 
         if (bookmarkLists == null) {
-            task = new BookmarkListRetrieveTask(getActivity(), this);
-            task.execute();
+            retrieveBookmarkLists(false);
         } else {
             onTaskFinish(bookmarkLists);
         }
     }
 
+    private void retrieveBookmarkLists(boolean forceReload) {
+        if (task != null)
+            task.cancel(true);
+
+        task = new BookmarkListRetrieveTask(getActivity(), this, forceReload);
+        task.execute();
+    }
+
     private void prepareRecyclerView() {
         adapter = new BookmarkListRecyclerAdapter((bookmarkList, selectAll) -> {
             ListListener listener = listListenerRef.get();
@@ -120,6 +137,25 @@ public class BookmarkListFragment extends Fragment implements BookmarkListRetrie
         outState.putSerializable(STATE_BOOKMARK_LISTS, bookmarkLists);
     }
 
+    @Override
+    public void onCreateOptionsMenu(Menu menu, MenuInflater inflater) {
+        inflater.inflate(R.menu.toolbar_refresh, menu);
+
+        super.onCreateOptionsMenu(menu, inflater);
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        switch (item.getItemId()) {
+            case R.id.refresh:
+                setListShown(false);
+                retrieveBookmarkLists(true);
+                return true;
+            default:
+                return super.onOptionsItemSelected(item);
+        }
+    }
+
     @Override
     public void onDestroyView() {
         super.onDestroyView();
@@ -4,9 +4,11 @@ import android.content.Context;
 import android.content.Intent;
 
 import com.arcao.geocaching.api.GeocachingApi;
-import com.arcao.geocaching.api.GeocachingApiFactory;
+import com.arcao.geocaching.api.downloader.TokenBucketRateLimiter;
 import com.arcao.geocaching.api.data.bookmarks.Bookmark;
-import com.arcao.geocaching4locus.authentication.task.GeocachingApiLoginTask;
+import com.arcao.geocaching.api.exception.InvalidSessionException;
+import com.arcao.geocaching4locus.App;
+import com.arcao.geocaching4locus.authentication.util.SessionManager;
 import com.arcao.geocaching4locus.base.task.UserTask;
 import com.arcao.geocaching4locus.error.handler.ExceptionHandler;
 
@@ -21,17 +23,23 @@ public class BookmarkCachesRetrieveTask extends UserTask<String, Void, List<Book
 
     private final Context context;
     private final WeakReference<TaskListener> taskListenerRef;
+    private final SessionManager sessionManager;
 
     public BookmarkCachesRetrieveTask(Context context, TaskListener listener) {
         this.context = context.getApplicationContext();
         taskListenerRef = new WeakReference<>(listener);
+        sessionManager = App.get(context).getSessionManager();
     }
 
     @Override
     protected List<Bookmark> doInBackground(String... params) throws Exception {
-        GeocachingApi api = GeocachingApiFactory.create();
-        GeocachingApiLoginTask.create(context, api).perform();
-        return api.getBookmarkListByGuid(params[0]);
+        try (SessionManager.Session session = sessionManager.open(TokenBucketRateLimiter.Priority.INTERACTIVE)) {
+            GeocachingApi api = session.getApi();
+            return api.getBookmarkListByGuid(params[0]);
+        } catch (InvalidSessionException e) {
+            sessionManager.invalidate();
+            throw e;
+        }
     }
 
     @Override
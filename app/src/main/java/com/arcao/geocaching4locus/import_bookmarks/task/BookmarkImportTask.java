@@ -6,19 +6,20 @@ import android.content.SharedPreferences;
 import android.preference.PreferenceManager;
 
 import com.arcao.geocaching.api.GeocachingApi;
-import com.arcao.geocaching.api.GeocachingApiFactory;
 import com.arcao.geocaching.api.data.Geocache;
 import com.arcao.geocaching.api.data.SearchForGeocachesRequest;
 import com.arcao.geocaching.api.data.bookmarks.Bookmark;
+import com.arcao.geocaching.api.downloader.TokenBucketRateLimiter;
 import com.arcao.geocaching.api.exception.GeocachingApiException;
+import com.arcao.geocaching.api.exception.InvalidSessionException;
 import com.arcao.geocaching.api.filter.CacheCodeFilter;
 import com.arcao.geocaching4locus.App;
-import com.arcao.geocaching4locus.authentication.task.GeocachingApiLoginTask;
 import com.arcao.geocaching4locus.authentication.util.AccountManager;
-import com.arcao.geocaching4locus.base.constants.AppConstants;
+import com.arcao.geocaching4locus.authentication.util.SessionManager;
 import com.arcao.geocaching4locus.base.constants.PrefConstants;
+import com.arcao.geocaching4locus.base.storage.GeocacheStore;
 import com.arcao.geocaching4locus.base.task.UserTask;
-import com.arcao.geocaching4locus.base.util.DownloadingUtil;
+import com.arcao.geocaching4locus.base.util.ItemsPerRequestController;
 import com.arcao.geocaching4locus.error.exception.LocusMapRuntimeException;
 import com.arcao.geocaching4locus.error.exception.NoResultFoundException;
 import com.arcao.geocaching4locus.error.handler.ExceptionHandler;
@@ -30,6 +31,7 @@ import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 import locus.api.android.ActionDisplayPointsExtended;
 import locus.api.android.objects.PackWaypoints;
@@ -50,6 +52,9 @@ public class BookmarkImportTask extends UserTask<String, Void, Boolean> {
     private final Context context;
     private final WeakReference<TaskListener> taskListenerRef;
     private final AccountManager accountManager;
+    private final SessionManager sessionManager;
+    private final GeocacheStore geocacheStore;
+    private final ItemsPerRequestController itemsPerRequestController;
     private final SharedPreferences preferences;
 
     private int progress;
@@ -59,17 +64,26 @@ public class BookmarkImportTask extends UserTask<String, Void, Boolean> {
         this.context = context.getApplicationContext();
         taskListenerRef = new WeakReference<>(listener);
         accountManager = App.get(context).getAccountManager();
+        sessionManager = App.get(context).getSessionManager();
+        geocacheStore = App.get(context).getGeocacheStore();
+        itemsPerRequestController = App.get(context).getItemsPerRequestController();
         preferences = PreferenceManager.getDefaultSharedPreferences(context);
     }
 
     @Override
     protected Boolean doInBackground(String... params) throws Exception {
+        try (SessionManager.Session session = sessionManager.open(TokenBucketRateLimiter.Priority.NORMAL)) {
+            return importGeocaches(session.getApi(), params);
+        } catch (InvalidSessionException e) {
+            sessionManager.invalidate();
+            throw e;
+        }
+    }
+
+    private boolean importGeocaches(GeocachingApi api, String... params) throws Exception {
         File dataFile = ActionDisplayPointsExtended.getCacheFileName();
         DataMapper mapper = new DataMapper(context);
 
-        GeocachingApi api = GeocachingApiFactory.create();
-        GeocachingApiLoginTask.create(context, api).perform();
-
         boolean simpleCacheData = preferences.getBoolean(PrefConstants.DOWNLOADING_SIMPLE_CACHE_DATA, false);
         int logCount = preferences.getInt(PrefConstants.DOWNLOADING_COUNT_OF_LOGS, 5);
 
@@ -100,37 +114,59 @@ public class BookmarkImportTask extends UserTask<String, Void, Boolean> {
             resultQuality = GeocachingApi.ResultQuality.LITE;
             logCount = 0;
         }
+        // simple geocaches are only markers, full data are downloaded when opened
+        final int storedLogCount = simpleCacheData ? GeocacheStore.LOG_COUNT_MARKER : logCount;
 
         try (StoreableWriter writer = new StoreableWriter(ActionDisplayPointsExtended.getCacheFileOutputStream())){
             publishProgress();
 
             progress = 0;
-            int itemsPerRequest = AppConstants.ITEMS_PER_REQUEST;
+            int itemsPerRequest = itemsPerRequestController.getItemsPerRequest(resultQuality);
             while (progress < count) {
-                long startTimeMillis = System.currentTimeMillis();
-
                 List<String> requestedCaches = geocacheCodes.subList(progress,
                         Math.min(count, progress + itemsPerRequest));
 
-                List<Geocache> cachesToAdd = api.searchForGeocaches(SearchForGeocachesRequest.builder()
-                        .resultQuality(resultQuality)
-                        .maxPerPage(itemsPerRequest)
-                        .geocacheLogCount(logCount)
-                        .addFilter(new CacheCodeFilter(requestedCaches.toArray(new String[requestedCaches.size()])))
-                        .build()
-                );
+                // use geocaches downloaded recently, download only the rest
+                Map<String, Waypoint> storedWaypoints = geocacheStore.get(requestedCaches, resultQuality, storedLogCount);
+                String[] missingCaches = GeocacheStore.getMissingGeocacheCodes(
+                        requestedCaches.toArray(new String[requestedCaches.size()]), storedWaypoints);
+
+                List<Geocache> cachesToAdd = Collections.emptyList();
+                if (missingCaches.length > 0) {
+                    long startTimeMillis = System.currentTimeMillis();
+
+                    try (SessionManager.SearchLock searchLock = sessionManager.lockSearch()) {
+                        cachesToAdd = api.searchForGeocaches(SearchForGeocachesRequest.builder()
+                                .resultQuality(resultQuality)
+                                .maxPerPage(itemsPerRequest)
+                                .geocacheLogCount(logCount)
+                                .addFilter(new CacheCodeFilter(missingCaches))
+                                .build()
+                        );
+                    }
+
+                    itemsPerRequest = itemsPerRequestController.onRequestFinished(resultQuality, missingCaches.length,
+                            cachesToAdd.size(), System.currentTimeMillis() - startTimeMillis);
 
-                if (!simpleCacheData)
-                    accountManager.getRestrictions().updateLimits(api.getLastGeocacheLimits());
+                    if (!simpleCacheData)
+                        accountManager.getRestrictions().updateLimits(api.getLastGeocacheLimits());
+                }
 
                 if (isCancelled())
                     return false;
 
-                if (cachesToAdd.isEmpty())
+                if (cachesToAdd.isEmpty() && storedWaypoints.isEmpty())
                     break;
 
+                List<Waypoint> waypoints = new ArrayList<>(storedWaypoints.values());
+                List<Waypoint> downloadedWaypoints = simpleCacheData
+                        ? mapper.createLocusMarkers(cachesToAdd)
+                        : mapper.createLocusWaypoints(cachesToAdd);
+                geocacheStore.put(downloadedWaypoints, resultQuality, storedLogCount);
+                waypoints.addAll(downloadedWaypoints);
+
                 PackWaypoints pw = new PackWaypoints("BookmarkImport");
-                for (Waypoint wpt : mapper.createLocusWaypoints(cachesToAdd)) {
+                for (Waypoint wpt : waypoints) {
                     if (simpleCacheData) {
                         wpt.setExtraOnDisplay(context.getPackageName(), UpdateActivity.class.getName(), UpdateActivity.PARAM_SIMPLE_CACHE_ID, wpt.gcData.getCacheID());
                     }
@@ -139,10 +175,8 @@ public class BookmarkImportTask extends UserTask<String, Void, Boolean> {
                 }
                 writer.write(pw);
 
-                progress += cachesToAdd.size();
+                progress += waypoints.size();
                 publishProgress();
-
-                itemsPerRequest = DownloadingUtil.computeItemsPerRequest(itemsPerRequest, startTimeMillis);
             }
 
             Timber.i("found caches: %d", progress);
@@ -5,14 +5,20 @@ import android.content.Intent;
 
 import com.arcao.geocaching.api.GeocachingApi;
 import com.arcao.geocaching.api.GeocachingApiFactory;
+import com.arcao.geocaching.api.downloader.OkHttpClientDownloader;
+import com.arcao.geocaching.api.downloader.TokenBucketRateLimiter;
 import com.arcao.geocaching.api.data.bookmarks.BookmarkList;
-import com.arcao.geocaching4locus.authentication.task.GeocachingApiLoginTask;
+import com.arcao.geocaching.api.exception.InvalidSessionException;
+import com.arcao.geocaching4locus.App;
+import com.arcao.geocaching4locus.authentication.util.SessionManager;
 import com.arcao.geocaching4locus.base.task.UserTask;
 import com.arcao.geocaching4locus.error.handler.ExceptionHandler;
 
 import java.lang.ref.WeakReference;
 import java.util.List;
 
+import okhttp3.CacheControl;
+
 public class BookmarkListRetrieveTask extends UserTask<Void, Void, List<BookmarkList>> {
     public interface TaskListener {
         void onTaskFinish(List<BookmarkList> bookmarkLists);
@@ -22,18 +28,41 @@ public class BookmarkListRetrieveTask extends UserTask<Void, Void, List<Bookmark
 
     private final Context context;
     private final WeakReference<TaskListener> taskListenerRef;
+    private final SessionManager sessionManager;
+    private final boolean forceReload;
 
-    public BookmarkListRetrieveTask(Context context, TaskListener listener) {
+    /**
+     * @param forceReload skip the cached bookmark lists, eg. on a reload requested by the user
+     */
+    public BookmarkListRetrieveTask(Context context, TaskListener listener, boolean forceReload) {
         this.context = context.getApplicationContext();
         taskListenerRef = new WeakReference<>(listener);
+        sessionManager = App.get(context).getSessionManager();
+        this.forceReload = forceReload;
     }
 
 
     @Override
     protected List<BookmarkList> doInBackground(Void... params) throws Exception {
-        GeocachingApi api = GeocachingApiFactory.create();
-        GeocachingApiLoginTask.create(context, api).perform();
-        return api.getBookmarkListsForUser();
+        try {
+            if (forceReload) {
+                // the received bookmark lists replace the cached ones
+                OkHttpClientDownloader downloader = GeocachingApiFactory.createDownloader(TokenBucketRateLimiter.Priority.INTERACTIVE);
+                downloader.setCacheControl(CacheControl.FORCE_NETWORK);
+
+                GeocachingApi api = GeocachingApiFactory.create(downloader);
+                sessionManager.login(api);
+                return api.getBookmarkListsForUser();
+            }
+
+            try (SessionManager.Session session = sessionManager.open(TokenBucketRateLimiter.Priority.INTERACTIVE)) {
+                GeocachingApi api = session.getApi();
+                return api.getBookmarkListsForUser();
+            }
+        } catch (InvalidSessionException e) {
+            sessionManager.invalidate();
+            throw e;
+        }
     }
 
     @Override
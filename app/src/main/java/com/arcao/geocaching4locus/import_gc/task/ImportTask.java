@@ -9,19 +9,19 @@ import android.support.annotation.Nullable;
 
 import com.arcao.geocaching.api.GeocachingApi;
 import com.arcao.geocaching.api.GeocachingApi.ResultQuality;
-import com.arcao.geocaching.api.GeocachingApiFactory;
 import com.arcao.geocaching.api.data.Geocache;
 import com.arcao.geocaching.api.data.SearchForGeocachesRequest;
+import com.arcao.geocaching.api.downloader.TokenBucketRateLimiter;
 import com.arcao.geocaching.api.exception.GeocachingApiException;
 import com.arcao.geocaching.api.exception.InvalidSessionException;
 import com.arcao.geocaching.api.filter.CacheCodeFilter;
 import com.arcao.geocaching4locus.App;
-import com.arcao.geocaching4locus.authentication.task.GeocachingApiLoginTask;
 import com.arcao.geocaching4locus.authentication.util.AccountManager;
-import com.arcao.geocaching4locus.base.constants.AppConstants;
+import com.arcao.geocaching4locus.authentication.util.SessionManager;
 import com.arcao.geocaching4locus.base.constants.PrefConstants;
+import com.arcao.geocaching4locus.base.storage.GeocacheStore;
 import com.arcao.geocaching4locus.base.task.UserTask;
-import com.arcao.geocaching4locus.base.util.DownloadingUtil;
+import com.arcao.geocaching4locus.base.util.ItemsPerRequestController;
 import com.arcao.geocaching4locus.error.exception.CacheNotFoundException;
 import com.arcao.geocaching4locus.error.exception.IntendedException;
 import com.arcao.geocaching4locus.error.exception.LocusMapRuntimeException;
@@ -38,7 +38,9 @@ import java.io.IOException;
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 import locus.api.android.ActionDisplayPointsExtended;
 import locus.api.android.objects.PackWaypoints;
@@ -50,6 +52,9 @@ import timber.log.Timber;
 public class ImportTask extends UserTask<String, Integer, Intent> {
     private static final String PACK_WAYPOINTS_NAME = "IMPORT";
     private final AccountManager accountManager;
+    private final SessionManager sessionManager;
+    private final GeocacheStore geocacheStore;
+    private final ItemsPerRequestController itemsPerRequestController;
     private final SharedPreferences preferences;
 
     public interface TaskListener {
@@ -68,6 +73,9 @@ public class ImportTask extends UserTask<String, Integer, Intent> {
         this.context = context.getApplicationContext();
 
         accountManager = App.get(context).getAccountManager();
+        sessionManager = App.get(context).getSessionManager();
+        geocacheStore = App.get(context).getGeocacheStore();
+        itemsPerRequestController = App.get(context).getItemsPerRequestController();
         preferences = PreferenceManager.getDefaultSharedPreferences(context);
     }
 
@@ -95,7 +103,7 @@ public class ImportTask extends UserTask<String, Integer, Intent> {
 
     private Exception handleException(@NonNull Exception e, @NonNull File dataFile, int count) {
         if (e instanceof InvalidSessionException)
-            App.get(context).getAccountManager().invalidateOAuthToken();
+            sessionManager.invalidate();
 
         if (e instanceof IOException)
             e = new GeocachingApiException(e.getMessage(), e);
@@ -112,8 +120,17 @@ public class ImportTask extends UserTask<String, Integer, Intent> {
 
         // if it's guid we need to convert to cache code
         if (!ImportActivity.CACHE_CODE_PATTERN.matcher(geocacheCodes[0]).find()) {
-            WherigoService wherigoService = WherigoApiFactory.create();
-            geocacheCodes[0] = wherigoService.getCacheCodeFromGuid(geocacheCodes[0]);
+            String guid = geocacheCodes[0];
+
+            // a code already resolved for the GUID is stored
+            geocacheCodes[0] = geocacheStore.getGeocacheCode(guid);
+            if (geocacheCodes[0] == null) {
+                WherigoService wherigoService = WherigoApiFactory.create();
+                geocacheCodes[0] = wherigoService.getCacheCodeFromGuid(guid);
+
+                if (geocacheCodes[0] != null)
+                    geocacheStore.putGeocacheCode(guid, geocacheCodes[0]);
+            }
         }
 
         int count = geocacheCodes.length;
@@ -121,9 +138,9 @@ public class ImportTask extends UserTask<String, Integer, Intent> {
 
         List<String> notFoundGeocacheCodes = new ArrayList<>(0);
 
-        try (StoreableWriter writer = new StoreableWriter(ActionDisplayPointsExtended.getCacheFileOutputStream())) {
-            GeocachingApi api = GeocachingApiFactory.create();
-            GeocachingApiLoginTask.create(context, api).perform();
+        try (StoreableWriter writer = new StoreableWriter(ActionDisplayPointsExtended.getCacheFileOutputStream());
+             SessionManager.Session session = sessionManager.open(TokenBucketRateLimiter.Priority.NORMAL)) {
+            GeocachingApi api = session.getApi();
 
             int logCount = preferences.getInt(PrefConstants.DOWNLOADING_COUNT_OF_LOGS, 5);
 
@@ -133,30 +150,48 @@ public class ImportTask extends UserTask<String, Integer, Intent> {
                 logCount = 0;
             }
 
-            int itemsPerRequest = AppConstants.ITEMS_PER_REQUEST;
+            int itemsPerRequest = itemsPerRequestController.getItemsPerRequest(resultQuality);
             while (current < count) {
-                long startTimeMillis = System.currentTimeMillis();
-
                 String[] requestedCacheIds = getRequestedGeocacheIds(geocacheCodes, current, itemsPerRequest);
 
-                List<Geocache> cachesToAdd = api.searchForGeocaches(SearchForGeocachesRequest.builder()
-                        .resultQuality(resultQuality)
-                        .maxPerPage(itemsPerRequest)
-                        .geocacheLogCount(logCount)
-                        .addFilter(new CacheCodeFilter(requestedCacheIds))
-                        .build()
-                );
+                // use geocaches downloaded recently, download only the rest
+                Map<String, Waypoint> storedWaypoints = geocacheStore.get(requestedCacheIds, resultQuality, logCount);
+                String[] missingCacheIds = GeocacheStore.getMissingGeocacheCodes(requestedCacheIds, storedWaypoints);
+
+                List<Geocache> cachesToAdd = Collections.emptyList();
+                if (missingCacheIds.length > 0) {
+                    long startTimeMillis = System.currentTimeMillis();
+
+                    try (SessionManager.SearchLock searchLock = sessionManager.lockSearch()) {
+                        cachesToAdd = api.searchForGeocaches(SearchForGeocachesRequest.builder()
+                                .resultQuality(resultQuality)
+                                .maxPerPage(itemsPerRequest)
+                                .geocacheLogCount(logCount)
+                                .addFilter(new CacheCodeFilter(missingCacheIds))
+                                .build()
+                        );
+                    }
+
+                    itemsPerRequest = itemsPerRequestController.onRequestFinished(resultQuality, missingCacheIds.length,
+                            cachesToAdd.size(), System.currentTimeMillis() - startTimeMillis);
 
-                accountManager.getRestrictions().updateLimits(api.getLastGeocacheLimits());
+                    accountManager.getRestrictions().updateLimits(api.getLastGeocacheLimits());
+                }
 
                 if (isCancelled())
                     return null;
 
-                addNotFoundCaches(notFoundGeocacheCodes, requestedCacheIds, cachesToAdd);
+                addNotFoundCaches(notFoundGeocacheCodes, missingCacheIds, cachesToAdd);
+
+                List<Waypoint> waypoints = mapper.createLocusWaypoints(cachesToAdd);
+                geocacheStore.put(waypoints, resultQuality, logCount);
 
-                if (!cachesToAdd.isEmpty()) {
+                if (!waypoints.isEmpty() || !storedWaypoints.isEmpty()) {
                     PackWaypoints pw = new PackWaypoints(PACK_WAYPOINTS_NAME);
-                    List<Waypoint> waypoints = mapper.createLocusWaypoints(cachesToAdd);
+
+                    for (Waypoint wpt : storedWaypoints.values()) {
+                        pw.addWaypoint(wpt);
+                    }
 
                     for (Waypoint wpt : waypoints) {
                         pw.addWaypoint(wpt);
@@ -167,8 +202,6 @@ public class ImportTask extends UserTask<String, Integer, Intent> {
 
                 current += requestedCacheIds.length;
                 publishProgress(current, count);
-
-                itemsPerRequest = DownloadingUtil.computeItemsPerRequest(itemsPerRequest, startTimeMillis);
             }
 
             Timber.i("found geocaches: %d", current);
@@ -0,0 +1,143 @@
+package com.arcao.geocaching4locus.live_map.model;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.Collections;
+import java.util.List;
+
+import locus.api.objects.extra.Waypoint;
+
+/**
+ * Web Mercator map tile holding Live Map geocaches inside its bounds.
+ */
+public class LiveMapTile {
+    private final int zoom;
+    private final int x;
+    private final int y;
+    private final String quadKey;
+
+    private List<String> geocacheCodes = Collections.emptyList();
+    private List<Waypoint> waypoints;
+    private long updated;
+    private boolean complete;
+
+    public LiveMapTile(int zoom, int x, int y) {
+        this.zoom = zoom;
+        this.x = x;
+        this.y = y;
+        quadKey = createQuadKey(zoom, x, y);
+    }
+
+    public int getZoom() {
+        return zoom;
+    }
+
+    public int getX() {
+        return x;
+    }
+
+    public int getY() {
+        return y;
+    }
+
+    @NonNull
+    public String getQuadKey() {
+        return quadKey;
+    }
+
+    public double getTopLatitude() {
+        return tileYToLatitude(y, zoom);
+    }
+
+    public double getBottomLatitude() {
+        return tileYToLatitude(y + 1, zoom);
+    }
+
+    public double getLeftLongitude() {
+        return tileXToLongitude(x, zoom);
+    }
+
+    public double getRightLongitude() {
+        return tileXToLongitude(x + 1, zoom);
+    }
+
+    @NonNull
+    public List<String> getGeocacheCodes() {
+        return geocacheCodes;
+    }
+
+    /**
+     * Returns geocaches inside the tile or null if they were not loaded from a storage yet.
+     */
+    @Nullable
+    public List<Waypoint> getWaypoints() {
+        return waypoints;
+    }
+
+    public long getUpdated() {
+        return updated;
+    }
+
+    /**
+     * Returns true if the tile contains all geocaches matching the Live Map filters.
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    public void setGeocacheCodes(@NonNull List<String> geocacheCodes, long updated, boolean complete) {
+        this.geocacheCodes = geocacheCodes;
+        this.updated = updated;
+        this.complete = complete;
+        waypoints = null;
+    }
+
+    public void setWaypoints(@NonNull List<Waypoint> waypoints) {
+        this.waypoints = waypoints;
+    }
+
+    public void invalidate() {
+        complete = false;
+    }
+
+    @NonNull
+    public static String getQuadKey(double latitude, double longitude, int zoom) {
+        return createQuadKey(zoom, longitudeToTileX(longitude, zoom), latitudeToTileY(latitude, zoom));
+    }
+
+    public static int longitudeToTileX(double longitude, int zoom) {
+        int x = (int) Math.floor((longitude + 180) / 360 * (1 << zoom));
+        return Math.max(0, Math.min(x, (1 << zoom) - 1));
+    }
+
+    public static int latitudeToTileY(double latitude, int zoom) {
+        double latRad = Math.toRadians(latitude);
+        int y = (int) Math.floor((1 - Math.log(Math.tan(latRad) + 1 / Math.cos(latRad)) / Math.PI) / 2 * (1 << zoom));
+        return Math.max(0, Math.min(y, (1 << zoom) - 1));
+    }
+
+    private static double tileXToLongitude(int x, int zoom) {
+        return (double) x / (1 << zoom) * 360 - 180;
+    }
+
+    private static double tileYToLatitude(int y, int zoom) {
+        double n = Math.PI - 2 * Math.PI * y / (1 << zoom);
+        return Math.toDegrees(Math.atan(Math.sinh(n)));
+    }
+
+    @NonNull
+    private static String createQuadKey(int zoom, int x, int y) {
+        StringBuilder quadKey = new StringBuilder(zoom);
+        for (int i = zoom; i > 0; i--) {
+            char digit = '0';
+            int mask = 1 << (i - 1);
+            if ((x & mask) != 0)
+                digit++;
+            if ((y & mask) != 0)
+                digit += 2;
+            quadKey.append(digit);
+        }
+        return quadKey.toString();
+    }
+}
@@ -13,8 +13,11 @@ import com.arcao.geocaching.api.GeocachingApi.ResultQuality;
 import com.arcao.geocaching.api.GeocachingApiFactory;
 import com.arcao.geocaching.api.data.Geocache;
 import com.arcao.geocaching.api.data.SearchForGeocachesRequest;
+import com.arcao.geocaching.api.data.coordinates.Coordinates;
 import com.arcao.geocaching.api.data.type.ContainerType;
 import com.arcao.geocaching.api.data.type.GeocacheType;
+import com.arcao.geocaching.api.downloader.OkHttpClientDownloader;
+import com.arcao.geocaching.api.downloader.TokenBucketRateLimiter;
 import com.arcao.geocaching.api.exception.GeocachingApiException;
 import com.arcao.geocaching.api.exception.InvalidCredentialsException;
 import com.arcao.geocaching.api.exception.InvalidSessionException;
@@ -36,22 +39,28 @@ import com.arcao.geocaching4locus.authentication.task.GeocachingApiLoginTask;
 import com.arcao.geocaching4locus.authentication.util.Account;
 import com.arcao.geocaching4locus.authentication.util.AccountManager;
 import com.arcao.geocaching4locus.base.constants.PrefConstants;
+import com.arcao.geocaching4locus.base.storage.GeocacheStore;
 import com.arcao.geocaching4locus.base.util.PreferenceUtil;
 import com.arcao.geocaching4locus.base.util.ResourcesUtil;
 import com.arcao.geocaching4locus.error.exception.LocusMapRuntimeException;
+import com.arcao.geocaching4locus.live_map.model.LiveMapTile;
 import com.arcao.geocaching4locus.live_map.util.LiveMapNotificationManager;
+import com.arcao.geocaching4locus.live_map.util.LiveMapPackTracker;
+import com.arcao.geocaching4locus.live_map.util.LiveMapTileCache;
 import com.arcao.geocaching4locus.update.UpdateActivity;
 
 import java.util.ArrayList;
-import java.util.LinkedList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Queue;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import locus.api.android.ActionDisplayPoints;
 import locus.api.android.objects.PackWaypoints;
-import locus.api.android.utils.exceptions.RequiredVersionMissingException;
 import locus.api.mapper.DataMapper;
 import locus.api.objects.extra.Waypoint;
 import timber.log.Timber;
@@ -61,6 +70,10 @@ import static com.arcao.geocaching4locus.base.constants.AppConstants.LIVEMAP_CAC
 import static com.arcao.geocaching4locus.base.constants.AppConstants.LIVEMAP_DISTANCE;
 import static com.arcao.geocaching4locus.base.constants.AppConstants.LIVEMAP_PACK_WAYPOINT_PREFIX;
 import static com.arcao.geocaching4locus.base.constants.AppConstants.LIVEMAP_REQUESTS;
+import static com.arcao.geocaching4locus.base.constants.AppConstants.LIVEMAP_REQUEST_DEBOUNCE_MS;
+import static com.arcao.geocaching4locus.base.constants.AppConstants.LIVEMAP_REQUEST_MIN_MOVEMENT;
+import static com.arcao.geocaching4locus.base.constants.AppConstants.LIVEMAP_REQUEST_MIN_ZOOM_CHANGE;
+import static com.arcao.geocaching4locus.base.constants.AppConstants.LIVEMAP_TILE_TTL_MS;
 import static com.arcao.geocaching4locus.live_map.LiveMapService.PARAM_BOTTOM_RIGHT_LATITUDE;
 import static com.arcao.geocaching4locus.live_map.LiveMapService.PARAM_BOTTOM_RIGHT_LONGITUDE;
 import static com.arcao.geocaching4locus.live_map.LiveMapService.PARAM_LATITUDE;
@@ -70,42 +83,134 @@ import static com.arcao.geocaching4locus.live_map.LiveMapService.PARAM_TOP_LEFT_
 
 public class LiveMapDownloadTask extends Thread {
     private static final Executor CLEAN_MAP_EXECUTOR = Executors.newSingleThreadExecutor();
+    private static final AtomicInteger CLEAN_MAP_COUNTER = new AtomicInteger();
 
     private final Context context;
     private final SharedPreferences preferences;
+    private final SharedPreferences accountPreferences;
     private final AccountManager accountManager;
     private final LiveMapNotificationManager notificationManager;
     private final DataMapper mapper;
-
-    private final Queue<Intent> taskQueue = new LinkedList<>();
-    private boolean terminated;
+    private final GeocacheStore geocacheStore;
+    private final LiveMapTileCache tileCache;
+
+    private final LiveMapRequestScheduler scheduler;
+    private final OkHttpClientDownloader downloader;
+    private volatile boolean terminated;
+
+    // filters were changed, cached tiles are not valid anymore
+    private volatile boolean tileCacheInvalidated;
+    private final SharedPreferences.OnSharedPreferenceChangeListener preferenceChangeListener =
+            (sharedPreferences, key) -> {
+                if (isLiveMapPreference(key))
+                    onPreferenceChanged();
+            };
+    private final SharedPreferences.OnSharedPreferenceChangeListener accountChangeListener =
+            (sharedPreferences, key) -> {
+                // found and own geocaches are filtered by the user name
+                if (PrefConstants.ACCOUNT_USERNAME.equals(key) || PrefConstants.ACCOUNT_PREMIUM.equals(key))
+                    onPreferenceChanged();
+            };
+
+    private final LiveMapPackTracker packTracker;
+    private int sentCleanMapCounter = CLEAN_MAP_COUNTER.get();
+    private long sentPacksTime;
 
     protected LiveMapDownloadTask(Context context, LiveMapNotificationManager notificationManager) {
+        this(context, notificationManager, new LiveMapRequestScheduler(LIVEMAP_REQUEST_DEBOUNCE_MS,
+                LIVEMAP_REQUEST_MIN_MOVEMENT, LIVEMAP_REQUEST_MIN_ZOOM_CHANGE));
+    }
+
+    protected LiveMapDownloadTask(Context context, LiveMapNotificationManager notificationManager, LiveMapRequestScheduler scheduler) {
         this.context = context.getApplicationContext();
         this.notificationManager = notificationManager;
+        this.scheduler = scheduler;
 
         preferences = PreferenceManager.getDefaultSharedPreferences(context);
+        accountPreferences = context.getSharedPreferences(PrefConstants.ACCOUNT_STORAGE_NAME, Context.MODE_PRIVATE);
         accountManager = App.get(context).getAccountManager();
         mapper = new DataMapper(context);
+        geocacheStore = App.get(context).getGeocacheStore();
+        tileCache = new LiveMapTileCache(context);
+        packTracker = new LiveMapPackTracker(context);
+        downloader = GeocachingApiFactory.createDownloader(TokenBucketRateLimiter.Priority.BACKGROUND);
+
+        scheduler.setCallback(new LiveMapRequestScheduler.Callback() {
+            @Override
+            public void onRequestDropped(@NonNull Intent request) {
+                onTaskFinished(request);
+            }
+
+            @Override
+            public void onAbortRequest() {
+                downloader.cancelRunningCalls();
+            }
+        });
+
+        preferences.registerOnSharedPreferenceChangeListener(preferenceChangeListener);
+        accountPreferences.registerOnSharedPreferenceChangeListener(accountChangeListener);
     }
 
     @UiThread
     public void addTask(Intent intent) {
-        synchronized (taskQueue) {
-            taskQueue.add(intent);
-            taskQueue.notify();
-        }
+        scheduler.submit(intent);
     }
 
     @UiThread
     public void cancel() {
-        synchronized (taskQueue) {
-            terminated = true;
-            taskQueue.notify();
+        terminated = true;
+        scheduler.terminate();
+        downloader.cancelRunningCalls();
+
+        preferences.unregisterOnSharedPreferenceChangeListener(preferenceChangeListener);
+        accountPreferences.unregisterOnSharedPreferenceChangeListener(accountChangeListener);
+    }
+
+    /**
+     * Returns true for preferences changing the Live Map result. Other preferences, eg. learned
+     * page sizes of other downloads, must not drop cached tiles.
+     */
+    private static boolean isLiveMapPreference(String key) {
+        if (key == null)
+            return false;
+
+        switch (key) {
+            case PrefConstants.FILTER_SHOW_FOUND:
+            case PrefConstants.FILTER_SHOW_OWN:
+            case PrefConstants.FILTER_SHOW_DISABLED:
+            case PrefConstants.FILTER_DIFFICULTY_MIN:
+            case PrefConstants.FILTER_DIFFICULTY_MAX:
+            case PrefConstants.FILTER_TERRAIN_MIN:
+            case PrefConstants.FILTER_TERRAIN_MAX:
+            case PrefConstants.LIVE_MAP_DOWNLOAD_HINTS:
+            case PrefConstants.DOWNLOADING_DISABLE_DNF_NM_NA_CACHES:
+            case PrefConstants.DOWNLOADING_DISABLE_DNF_NM_NA_CACHES_LOGS_COUNT:
+                return true;
         }
+
+        return isIndexedPreference(key, PrefConstants.FILTER_CACHE_TYPE_PREFIX)
+                || isIndexedPreference(key, PrefConstants.FILTER_CONTAINER_TYPE_PREFIX);
     }
 
-    @WorkerThread
+    private static boolean isIndexedPreference(String key, String prefix) {
+        if (!key.startsWith(prefix) || key.length() == prefix.length())
+            return false;
+
+        for (int i = prefix.length(); i < key.length(); i++) {
+            if (!Character.isDigit(key.charAt(i)))
+                return false;
+        }
+        return true;
+    }
+
+    private void onPreferenceChanged() {
+        tileCacheInvalidated = true;
+        scheduler.invalidate();
+    }
+
+    /**
+     * Called for each added task after it is processed or dropped by the scheduler.
+     */
     public void onTaskFinished(Intent task) {
         // do nothing
     }
@@ -114,12 +219,21 @@ public class LiveMapDownloadTask extends Thread {
     public static void cleanMapItems(Context context) {
         final Context appContext = context.getApplicationContext();
 
+        // packs have to be sent again
+        CLEAN_MAP_COUNTER.incrementAndGet();
+
         CLEAN_MAP_EXECUTOR.execute(() -> {
             try {
-                for (int i = 1; i <= LIVEMAP_REQUESTS; i++) {
-                    PackWaypoints pw = new PackWaypoints(LIVEMAP_PACK_WAYPOINT_PREFIX + i);
+                Set<String> packNames = LiveMapPackTracker.getSentPackNames(appContext);
+                // packs sent by older versions
+                for (int i = 1; i <= LIVEMAP_REQUESTS; i++)
+                    packNames.add(LIVEMAP_PACK_WAYPOINT_PREFIX + i);
+
+                for (String packName : packNames) {
+                    PackWaypoints pw = new PackWaypoints(packName);
                     ActionDisplayPoints.sendPackSilent(appContext, pw, false);
                 }
+                LiveMapPackTracker.clearSentPackNames(appContext);
             } catch (Throwable t) {
                 t = new LocusMapRuntimeException(t);
                 Timber.e(t);
@@ -131,36 +245,29 @@ public class LiveMapDownloadTask extends Thread {
     @WorkerThread
     @Override
     public void run() {
-        try {
-            while (!terminated) {
-                Intent task = null;
-
-                synchronized (taskQueue) {
-                    // chose latest
-                    while (!taskQueue.isEmpty()) {
-                        if (task != null)
-                            onTaskFinished(task);
-
-                        task = taskQueue.poll();
-                    }
-
-                    // if nothing in queue, wait
-                    if (task == null) {
-                        taskQueue.wait();
-                        continue;
-                    }
-                }
+        tileCache.load();
 
+        try {
+            Intent task;
+            while ((task = scheduler.take()) != null) {
+                boolean successful = false;
                 try {
-                    downloadTask(task);
+                    successful = downloadTask(task);
                 } catch (Exception e) {
-                    handleTaskException(e);
+                    if (scheduler.isOutdated(task)) {
+                        Timber.d(e, "Task was aborted.");
+                    } else {
+                        handleTaskException(e);
+                    }
                 } finally {
+                    scheduler.finish(task, successful);
                     onTaskFinished(task);
                 }
             }
         } catch (InterruptedException e) {
             Timber.e(e);
+        } finally {
+            tileCache.save();
         }
     }
 
@@ -182,35 +289,87 @@ public class LiveMapDownloadTask extends Thread {
         }
     }
 
+    /**
+     * @return true if the whole viewport was downloaded
+     */
     @WorkerThread
-    private void downloadTask(@NonNull Intent task) throws GeocachingApiException, RequiredVersionMissingException {
+    private boolean downloadTask(@NonNull Intent task) throws GeocachingApiException {
         boolean downloadHints = preferences.getBoolean(PrefConstants.LIVE_MAP_DOWNLOAD_HINTS, false);
+        ResultQuality resultQuality = downloadHints ? ResultQuality.SUMMARY : ResultQuality.LITE;
+
+        if (tileCacheInvalidated) {
+            tileCacheInvalidated = false;
+            tileCache.clear();
+            packTracker.invalidate();
+        }
+
+        double latitude = task.getDoubleExtra(PARAM_LATITUDE, 0D);
+        double longitude = task.getDoubleExtra(PARAM_LONGITUDE, 0D);
+        double topLeftLatitude = task.getDoubleExtra(PARAM_TOP_LEFT_LATITUDE, 0D);
+        double topLeftLongitude = task.getDoubleExtra(PARAM_TOP_LEFT_LONGITUDE, 0D);
+        double bottomRightLatitude = task.getDoubleExtra(PARAM_BOTTOM_RIGHT_LATITUDE, 0D);
+        double bottomRightLongitude = task.getDoubleExtra(PARAM_BOTTOM_RIGHT_LONGITUDE, 0D);
+
+        Coordinates center = Coordinates.create(latitude, longitude);
+
+        // use fresh tiles, download only the rest
+        int zoom = LiveMapTileCache.computeZoom(topLeftLongitude, bottomRightLongitude);
+        List<LiveMapTile> staleTiles = new ArrayList<>();
+        List<Waypoint> cachedWaypoints = new ArrayList<>();
+        for (LiveMapTile tile : tileCache.getTiles(zoom, topLeftLatitude, topLeftLongitude, bottomRightLatitude, bottomRightLongitude)) {
+            if (tileCache.isFresh(tile, resultQuality)) {
+                cachedWaypoints.addAll(tileCache.getWaypoints(tile, resultQuality));
+            } else {
+                staleTiles.add(tile);
+            }
+        }
+
+        notificationManager.setDownloadingProgress(0, LIVEMAP_CACHES_COUNT);
+
+        if (staleTiles.isEmpty()) {
+            Timber.d("All tiles are cached, nothing to download ...");
+            sendPacks(zoom, center, cachedWaypoints);
+            notificationManager.setDownloadingProgress(LIVEMAP_CACHES_COUNT, LIVEMAP_CACHES_COUNT);
+            return true;
+        }
+
+        // search only in the bounds of stale tiles
+        double staleTopLatitude = -90;
+        double staleLeftLongitude = 180;
+        double staleBottomLatitude = 90;
+        double staleRightLongitude = -180;
+        for (LiveMapTile tile : staleTiles) {
+            staleTopLatitude = Math.max(staleTopLatitude, tile.getTopLatitude());
+            staleLeftLongitude = Math.min(staleLeftLongitude, tile.getLeftLongitude());
+            staleBottomLatitude = Math.min(staleBottomLatitude, tile.getBottomLatitude());
+            staleRightLongitude = Math.max(staleRightLongitude, tile.getRightLongitude());
+        }
+        Coordinates topLeft = Coordinates.create(staleTopLatitude, staleLeftLongitude);
+        Coordinates bottomRight = Coordinates.create(staleBottomLatitude, staleRightLongitude);
+
+        List<Waypoint> downloadedWaypoints = new ArrayList<>();
+        boolean completed = false;
 
         int current = 0;
-        int requests = 0;
         try {
-            GeocachingApi api = GeocachingApiFactory.create();
+            GeocachingApi api = GeocachingApiFactory.create(downloader);
             GeocachingApiLoginTask.create(context, api).perform();
 
-            notificationManager.setDownloadingProgress(0, LIVEMAP_CACHES_COUNT);
-
             while (current < LIVEMAP_CACHES_COUNT) {
                 int perPage = (LIVEMAP_CACHES_COUNT - current < LIVEMAP_CACHES_PER_REQUEST) ? LIVEMAP_CACHES_COUNT - current
                         : LIVEMAP_CACHES_PER_REQUEST;
 
-                if (!taskQueue.isEmpty()) {
+                if (scheduler.isOutdated(task)) {
                     Timber.d("New task found, skipped downloading next caches ...");
-                    return;
+                    return false;
                 }
 
-                ResultQuality resultQuality = downloadHints ? ResultQuality.SUMMARY : ResultQuality.LITE;
-
                 List<Geocache> caches;
 
                 if (current == 0) {
                     caches = api.searchForGeocaches(SearchForGeocachesRequest.builder()
-                            .resultQuality(downloadHints ? ResultQuality.SUMMARY : ResultQuality.LITE)
-                            .addFilters(createFilters(task))
+                            .resultQuality(resultQuality)
+                            .addFilters(createFilters(center, topLeft, bottomRight))
                             .geocacheLogCount(0)
                             .maxPerPage(perPage)
                             .build()
@@ -219,53 +378,110 @@ public class LiveMapDownloadTask extends Thread {
                     caches = api.getMoreGeocaches(resultQuality, current, perPage, 0, 0);
                 }
 
-                if (caches.isEmpty())
+                if (caches.isEmpty()) {
+                    completed = true;
                     break;
+                }
 
                 if (terminated || !notificationManager.isLiveMapEnabled())
-                    break;
+                    return false;
 
                 current += caches.size();
-                requests++;
 
-                PackWaypoints pw = new PackWaypoints(LIVEMAP_PACK_WAYPOINT_PREFIX + requests);
-                for (Waypoint wpt : mapper.createLocusWaypoints(caches)) {
-                    wpt.setExtraOnDisplay(context.getPackageName(), UpdateActivity.class.getName(),
-                            UpdateActivity.PARAM_SIMPLE_CACHE_ID, wpt.gcData.getCacheID());
-                    pw.addWaypoint(wpt);
-                }
+                // full data are downloaded by UpdateActivity when a geocache is opened
+                List<Waypoint> waypoints = mapper.createLocusMarkers(caches);
+                geocacheStore.put(waypoints, resultQuality, GeocacheStore.LOG_COUNT_MARKER);
+                downloadedWaypoints.addAll(waypoints);
 
-                try {
-                    ActionDisplayPoints.sendPackSilent(context, pw, false);
-                } catch (Throwable t) {
-                    throw new LocusMapRuntimeException(t);
-                }
+                List<Waypoint> allWaypoints = new ArrayList<>(cachedWaypoints);
+                allWaypoints.addAll(downloadedWaypoints);
+                sendPacks(zoom, center, allWaypoints);
 
                 notificationManager.setDownloadingProgress(current, LIVEMAP_CACHES_COUNT);
 
-                if (caches.size() != perPage)
+                if (caches.size() != perPage) {
+                    completed = true;
                     break;
+                }
             }
         } catch (InvalidSessionException e) {
             Timber.e(e);
-            accountManager.invalidateOAuthToken();
+            App.get(context).getSessionManager().invalidate();
 
             throw e;
         } finally {
-            Timber.i("Count of caches sent to Locus: %s", current);
+            Timber.i("Count of caches downloaded: %d, cached: %d", current, cachedWaypoints.size());
+        }
+
+        // the result is sorted by a distance, so it's complete up to the last geocache
+        double completeRadius = LIVEMAP_DISTANCE;
+        if (!completed && !downloadedWaypoints.isEmpty()) {
+            Waypoint last = downloadedWaypoints.get(downloadedWaypoints.size() - 1);
+            completeRadius = Math.min(completeRadius, center.distanceTo(
+                    Coordinates.create(last.getLocation().getLatitude(), last.getLocation().getLongitude())));
         }
+        tileCache.update(staleTiles, downloadedWaypoints, center, completeRadius);
 
         notificationManager.setDownloadingProgress(LIVEMAP_CACHES_COUNT, LIVEMAP_CACHES_COUNT);
 
-        // HACK we must remove old PackWaypoints from the map
-        for (int i = requests + 1; i <= LIVEMAP_REQUESTS; i++) {
-            PackWaypoints pw = new PackWaypoints(LIVEMAP_PACK_WAYPOINT_PREFIX + i);
-            ActionDisplayPoints.sendPackSilent(context, pw, false);
+        List<Waypoint> allWaypoints = new ArrayList<>(cachedWaypoints);
+        allWaypoints.addAll(downloadedWaypoints);
+        sendPacks(zoom, center, allWaypoints);
+        return true;
+    }
+
+    /**
+     * Group geocaches nearest to the center to PackWaypoints by tiles and send to Locus only
+     * these which differ from the last sent ones.
+     */
+    @WorkerThread
+    private void sendPacks(int zoom, @NonNull Coordinates center, @NonNull List<Waypoint> waypoints) {
+        // remove duplicates and sort by distance from the center
+        final Map<String, Double> distances = new HashMap<>(waypoints.size());
+        List<Waypoint> sortedWaypoints = new ArrayList<>(waypoints.size());
+        for (Waypoint wpt : waypoints) {
+            String code = wpt.gcData.getCacheID();
+            if (distances.containsKey(code))
+                continue;
+
+            distances.put(code, center.distanceTo(Coordinates.create(wpt.getLocation().getLatitude(), wpt.getLocation().getLongitude())));
+            sortedWaypoints.add(wpt);
+        }
+        Collections.sort(sortedWaypoints, (lhs, rhs) -> Double.compare(distances.get(lhs.gcData.getCacheID()), distances.get(rhs.gcData.getCacheID())));
+
+        // Locus may lose packs, e.g. when the map was cleaned, send everything from time to time
+        int cleanMapCounter = CLEAN_MAP_COUNTER.get();
+        long now = System.currentTimeMillis();
+        if (sentCleanMapCounter != cleanMapCounter) {
+            packTracker.clear();
+            sentCleanMapCounter = cleanMapCounter;
+            sentPacksTime = now;
+        } else if (now - sentPacksTime > LIVEMAP_TILE_TTL_MS) {
+            packTracker.invalidate();
+            sentPacksTime = now;
+        }
+
+        List<Waypoint> nearestWaypoints = sortedWaypoints.subList(0, Math.min(sortedWaypoints.size(), LIVEMAP_CACHES_COUNT));
+        for (Map.Entry<String, List<Waypoint>> entry : packTracker.diff(zoom, nearestWaypoints).entrySet()) {
+            PackWaypoints pw = new PackWaypoints(entry.getKey());
+            for (Waypoint wpt : entry.getValue()) {
+                wpt.setExtraOnDisplay(context.getPackageName(), UpdateActivity.class.getName(),
+                        UpdateActivity.PARAM_SIMPLE_CACHE_ID, wpt.gcData.getCacheID());
+                pw.addWaypoint(wpt);
+            }
+
+            try {
+                ActionDisplayPoints.sendPackSilent(context, pw, false);
+            } catch (Throwable t) {
+                throw new LocusMapRuntimeException(t);
+            }
+
+            packTracker.onPackSent(entry.getKey(), entry.getValue());
         }
     }
 
     @NonNull
-    private List<Filter> createFilters(@NonNull Intent task) {
+    private List<Filter> createFilters(@NonNull Coordinates center, @NonNull Coordinates topLeft, @NonNull Coordinates bottomRight) {
         List<Filter> filters = new ArrayList<>(10);
 
         final Account account = accountManager.getAccount();
@@ -273,15 +489,8 @@ public class LiveMapDownloadTask extends Thread {
         String userName = account != null ? account.name() : null;
         boolean premiumMember = account != null && account.premium();
 
-        double latitude = task.getDoubleExtra(PARAM_LATITUDE, 0D);
-        double longitude = task.getDoubleExtra(PARAM_LONGITUDE, 0D);
-        double topLeftLatitude = task.getDoubleExtra(PARAM_TOP_LEFT_LATITUDE, 0D);
-        double topLeftLongitude = task.getDoubleExtra(PARAM_TOP_LEFT_LONGITUDE, 0D);
-        double bottomRightLatitude = task.getDoubleExtra(PARAM_BOTTOM_RIGHT_LATITUDE, 0D);
-        double bottomRightLongitude = task.getDoubleExtra(PARAM_BOTTOM_RIGHT_LONGITUDE, 0D);
-
-        filters.add(new PointRadiusFilter(latitude, longitude, LIVEMAP_DISTANCE));
-        filters.add(new ViewportFilter(topLeftLatitude, topLeftLongitude, bottomRightLatitude, bottomRightLongitude));
+        filters.add(new PointRadiusFilter(center, LIVEMAP_DISTANCE));
+        filters.add(new ViewportFilter(topLeft, bottomRight));
 
         boolean showDisabled = preferences.getBoolean(PrefConstants.FILTER_SHOW_DISABLED, false);
         filters.add(
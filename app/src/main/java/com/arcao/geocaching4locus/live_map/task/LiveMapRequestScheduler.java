@@ -0,0 +1,229 @@
+package com.arcao.geocaching4locus.live_map.task;
+
+import android.content.Intent;
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.UiThread;
+import android.support.annotation.WorkerThread;
+
+import com.arcao.geocaching.api.data.coordinates.Coordinates;
+
+import timber.log.Timber;
+
+import static com.arcao.geocaching4locus.live_map.LiveMapService.PARAM_BOTTOM_RIGHT_LATITUDE;
+import static com.arcao.geocaching4locus.live_map.LiveMapService.PARAM_BOTTOM_RIGHT_LONGITUDE;
+import static com.arcao.geocaching4locus.live_map.LiveMapService.PARAM_LATITUDE;
+import static com.arcao.geocaching4locus.live_map.LiveMapService.PARAM_LONGITUDE;
+import static com.arcao.geocaching4locus.live_map.LiveMapService.PARAM_TOP_LEFT_LATITUDE;
+import static com.arcao.geocaching4locus.live_map.LiveMapService.PARAM_TOP_LEFT_LONGITUDE;
+
+/**
+ * Decides which Live Map requests are really downloaded. Only the latest request is kept and it
+ * is issued after the map was not moved for the debounce time. A request is dropped if the
+ * viewport moved less than a minimal movement and zoom didn't change enough since the last
+ * completed request. A running request is aborted when a request for a different viewport
+ * arrives.
+ */
+public class LiveMapRequestScheduler {
+    public interface Callback {
+        /**
+         * Called for a request which will not be issued, because it was replaced by a newer one
+         * or it didn't change the viewport enough.
+         */
+        void onRequestDropped(@NonNull Intent request);
+
+        /**
+         * Called when the running request is outdated and its network calls should be aborted.
+         */
+        void onAbortRequest();
+    }
+
+    private final long debounceMs;
+    private final float minMovement;
+    private final float minZoomChange;
+
+    private Callback callback;
+
+    private Intent pendingRequest;
+    private long pendingRequestTime;
+    private Intent runningRequest;
+    private Intent lastCompletedRequest;
+    private boolean terminated;
+
+    private int issuedCount;
+    private int coalescedCount;
+    private int abortedCount;
+
+    /**
+     * @param debounceMs    time in ms the map must be still before a request is issued
+     * @param minMovement   minimal movement of the map center relative to the viewport diagonal
+     * @param minZoomChange minimal ratio of viewport diagonals treated as a zoom change
+     */
+    public LiveMapRequestScheduler(long debounceMs, float minMovement, float minZoomChange) {
+        this.debounceMs = debounceMs;
+        this.minMovement = minMovement;
+        this.minZoomChange = minZoomChange;
+    }
+
+    public synchronized void setCallback(@Nullable Callback callback) {
+        this.callback = callback;
+    }
+
+    @UiThread
+    public void submit(@NonNull Intent request) {
+        boolean abort = false;
+
+        synchronized (this) {
+            if (pendingRequest != null)
+                drop(pendingRequest);
+
+            pendingRequest = request;
+            pendingRequestTime = SystemClock.elapsedRealtime();
+
+            if (runningRequest != null && isSignificantChange(runningRequest, request)) {
+                runningRequest = null;
+                abortedCount++;
+                abort = true;
+            }
+
+            notifyAll();
+        }
+
+        if (abort && callback != null)
+            callback.onAbortRequest();
+    }
+
+    /**
+     * Wait for a next request to issue.
+     *
+     * @return the request or null if the scheduler was terminated
+     */
+    @WorkerThread
+    @Nullable
+    public synchronized Intent take() throws InterruptedException {
+        while (!terminated) {
+            if (pendingRequest == null) {
+                wait();
+                continue;
+            }
+
+            long remaining = pendingRequestTime + debounceMs - SystemClock.elapsedRealtime();
+            if (remaining > 0) {
+                wait(remaining);
+                continue;
+            }
+
+            Intent request = pendingRequest;
+            pendingRequest = null;
+
+            if (lastCompletedRequest != null && !isSignificantChange(lastCompletedRequest, request)) {
+                drop(request);
+                continue;
+            }
+
+            runningRequest = request;
+            issuedCount++;
+            return request;
+        }
+
+        return null;
+    }
+
+    /**
+     * Mark the request returned by {@link #take()} as finished.
+     *
+     * @param request    finished request
+     * @param successful true if the whole viewport was downloaded
+     */
+    @WorkerThread
+    public synchronized void finish(@NonNull Intent request, boolean successful) {
+        if (runningRequest == request)
+            runningRequest = null;
+
+        lastCompletedRequest = successful ? request : null;
+
+        Timber.d("Live Map requests issued: %d, coalesced: %d, aborted: %d", issuedCount, coalescedCount, abortedCount);
+    }
+
+    /**
+     * Returns true if the running request was aborted or a newer request is waiting.
+     */
+    public synchronized boolean isOutdated(@NonNull Intent request) {
+        return terminated || runningRequest != request
+                || (pendingRequest != null && isSignificantChange(request, pendingRequest));
+    }
+
+    /**
+     * Next request is issued even if the viewport didn't change.
+     */
+    public synchronized void invalidate() {
+        lastCompletedRequest = null;
+    }
+
+    public synchronized void terminate() {
+        terminated = true;
+
+        if (pendingRequest != null) {
+            drop(pendingRequest);
+            pendingRequest = null;
+        }
+
+        notifyAll();
+    }
+
+    public synchronized int getIssuedCount() {
+        return issuedCount;
+    }
+
+    public synchronized int getCoalescedCount() {
+        return coalescedCount;
+    }
+
+    public synchronized int getAbortedCount() {
+        return abortedCount;
+    }
+
+    private void drop(@NonNull Intent request) {
+        coalescedCount++;
+
+        if (callback != null)
+            callback.onRequestDropped(request);
+    }
+
+    private boolean isSignificantChange(@NonNull Intent previous, @NonNull Intent current) {
+        double previousDiagonal = getDiagonal(previous);
+        double currentDiagonal = getDiagonal(current);
+
+        if (previousDiagonal <= 0 || currentDiagonal <= 0)
+            return true;
+
+        double zoomRatio = Math.max(previousDiagonal, currentDiagonal) / Math.min(previousDiagonal, currentDiagonal);
+        if (zoomRatio >= minZoomChange)
+            return true;
+
+        double movement = getCenter(previous).distanceTo(getCenter(current));
+        return movement >= minMovement * previousDiagonal;
+    }
+
+    @NonNull
+    private static Coordinates getCenter(@NonNull Intent request) {
+        return Coordinates.create(
+                request.getDoubleExtra(PARAM_LATITUDE, 0D),
+                request.getDoubleExtra(PARAM_LONGITUDE, 0D)
+        );
+    }
+
+    private static double getDiagonal(@NonNull Intent request) {
+        Coordinates topLeft = Coordinates.create(
+                request.getDoubleExtra(PARAM_TOP_LEFT_LATITUDE, 0D),
+                request.getDoubleExtra(PARAM_TOP_LEFT_LONGITUDE, 0D)
+        );
+        Coordinates bottomRight = Coordinates.create(
+                request.getDoubleExtra(PARAM_BOTTOM_RIGHT_LATITUDE, 0D),
+                request.getDoubleExtra(PARAM_BOTTOM_RIGHT_LONGITUDE, 0D)
+        );
+
+        return topLeft.distanceTo(bottomRight);
+    }
+}
@@ -0,0 +1,146 @@
+package com.arcao.geocaching4locus.live_map.util;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.support.annotation.NonNull;
+
+import com.arcao.geocaching4locus.base.constants.PrefConstants;
+import com.arcao.geocaching4locus.live_map.model.LiveMapTile;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import locus.api.objects.extra.Waypoint;
+import timber.log.Timber;
+
+import static com.arcao.geocaching4locus.base.constants.AppConstants.LIVEMAP_PACK_WAYPOINT_PREFIX;
+
+/**
+ * Tracks Live Map PackWaypoints shown in Locus and geocache codes inside them. Geocaches are
+ * grouped to packs by Web Mercator tiles (the same as in {@link LiveMapTileCache}), so a geocache
+ * stays in the same pack while the map is moved and only packs of tiles with a changed content
+ * have to be sent to Locus again.
+ * <p>
+ * Names of sent packs are stored, so the packs can be removed from Locus by
+ * {@link #getSentPackNames(Context)} even after the Live Map service was restarted.
+ */
+public class LiveMapPackTracker {
+    private final SharedPreferences storage;
+
+    // geocache codes of packs shown in Locus, null if the content is unknown
+    private final Map<String, Set<String>> packCodes = new HashMap<>();
+
+    public LiveMapPackTracker(@NonNull Context context) {
+        storage = getStorage(context);
+
+        // packs sent before a restart may be still visible
+        for (String packName : getSentPackNames(context))
+            packCodes.put(packName, null);
+    }
+
+    /**
+     * Split geocaches to packs and return packs which differ from the shown ones. Packs which
+     * are not shown anymore are returned empty, so they are removed from Locus when sent.
+     *
+     * @param zoom zoom level of tiles used to group geocaches
+     * @return pack name to geocaches of the pack
+     */
+    @NonNull
+    public Map<String, List<Waypoint>> diff(int zoom, @NonNull List<Waypoint> waypoints) {
+        Map<String, List<Waypoint>> packs = new LinkedHashMap<>();
+        for (Waypoint wpt : waypoints) {
+            String packName = LIVEMAP_PACK_WAYPOINT_PREFIX
+                    + LiveMapTile.getQuadKey(wpt.getLocation().getLatitude(), wpt.getLocation().getLongitude(), zoom);
+
+            List<Waypoint> packWaypoints = packs.get(packName);
+            if (packWaypoints == null) {
+                packWaypoints = new ArrayList<>();
+                packs.put(packName, packWaypoints);
+            }
+            packWaypoints.add(wpt);
+        }
+
+        Map<String, List<Waypoint>> changedPacks = new LinkedHashMap<>();
+        for (Map.Entry<String, List<Waypoint>> entry : packs.entrySet()) {
+            Set<String> codes = packCodes.get(entry.getKey());
+            if (codes == null || !codes.equals(getCodes(entry.getValue())))
+                changedPacks.put(entry.getKey(), entry.getValue());
+        }
+
+        for (String packName : packCodes.keySet()) {
+            if (!packs.containsKey(packName))
+                changedPacks.put(packName, Collections.emptyList());
+        }
+
+        Timber.d("Live Map packs: %d to show, %d changed", packs.size(), changedPacks.size());
+        return changedPacks;
+    }
+
+    /**
+     * Remember the content of a pack sent to Locus. An empty pack is forgotten.
+     */
+    public void onPackSent(@NonNull String packName, @NonNull List<Waypoint> waypoints) {
+        boolean namesChanged;
+        if (waypoints.isEmpty()) {
+            namesChanged = packCodes.containsKey(packName);
+            packCodes.remove(packName);
+        } else {
+            namesChanged = !packCodes.containsKey(packName);
+            packCodes.put(packName, getCodes(waypoints));
+        }
+
+        if (namesChanged)
+            storage.edit().putStringSet(PrefConstants.LIVE_MAP_PACKS__SENT, new HashSet<>(packCodes.keySet())).apply();
+    }
+
+    /**
+     * Send all shown packs again with the next diff, eg. when Locus could lose them.
+     */
+    public void invalidate() {
+        for (Map.Entry<String, Set<String>> entry : packCodes.entrySet())
+            entry.setValue(null);
+    }
+
+    /**
+     * Forget all packs, they were already removed from Locus.
+     */
+    public void clear() {
+        packCodes.clear();
+    }
+
+    /**
+     * Returns names of packs which may be shown in Locus.
+     */
+    @NonNull
+    public static Set<String> getSentPackNames(@NonNull Context context) {
+        Set<String> packNames = getStorage(context).getStringSet(PrefConstants.LIVE_MAP_PACKS__SENT, null);
+        // the returned set must not be modified
+        return packNames != null ? new HashSet<>(packNames) : new HashSet<>();
+    }
+
+    /**
+     * Forget names of sent packs after they were removed from Locus.
+     */
+    public static void clearSentPackNames(@NonNull Context context) {
+        getStorage(context).edit().remove(PrefConstants.LIVE_MAP_PACKS__SENT).apply();
+    }
+
+    @NonNull
+    private static Set<String> getCodes(@NonNull List<Waypoint> waypoints) {
+        Set<String> codes = new HashSet<>(waypoints.size());
+        for (Waypoint wpt : waypoints)
+            codes.add(wpt.gcData.getCacheID());
+
+        return codes;
+    }
+
+    private static SharedPreferences getStorage(Context context) {
+        return context.getSharedPreferences(PrefConstants.LIVE_MAP_PACKS_STORAGE_NAME, Context.MODE_PRIVATE);
+    }
+}
@@ -0,0 +1,255 @@
+package com.arcao.geocaching4locus.live_map.util;
+
+import android.content.Context;
+import android.support.annotation.NonNull;
+import android.support.annotation.WorkerThread;
+
+import com.arcao.geocaching.api.GeocachingApi.ResultQuality;
+import com.arcao.geocaching.api.data.coordinates.Coordinates;
+import com.arcao.geocaching4locus.App;
+import com.arcao.geocaching4locus.base.storage.GeocacheStore;
+import com.arcao.geocaching4locus.live_map.model.LiveMapTile;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import locus.api.objects.extra.Waypoint;
+import timber.log.Timber;
+
+import static com.arcao.geocaching4locus.base.constants.AppConstants.LIVEMAP_TILE_CACHE_SIZE;
+import static com.arcao.geocaching4locus.base.constants.AppConstants.LIVEMAP_TILE_TTL_MS;
+
+/**
+ * Cache of Live Map results split to Web Mercator tiles. Geocaches itself are kept in
+ * {@link GeocacheStore}, the tile index is kept in memory and stored to the disk by
+ * {@link #save()}, so it survives a restart of the Live Map service.
+ */
+public class LiveMapTileCache {
+    private static final String INDEX_FILE_NAME = "live_map_tiles.idx";
+    private static final int INDEX_VERSION = 1;
+
+    private static final int MIN_ZOOM = 6;
+    private static final int MAX_ZOOM = 18;
+
+    private final File indexFile;
+    private final GeocacheStore geocacheStore;
+    private final Map<String, LiveMapTile> tiles;
+
+    public LiveMapTileCache(@NonNull Context context) {
+        indexFile = new File(context.getCacheDir(), INDEX_FILE_NAME);
+        geocacheStore = App.get(context).getGeocacheStore();
+
+        tiles = new LinkedHashMap<String, LiveMapTile>(LIVEMAP_TILE_CACHE_SIZE, 0.75F, true) {
+            private static final long serialVersionUID = 2904834729374817273L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, LiveMapTile> eldest) {
+                return size() > LIVEMAP_TILE_CACHE_SIZE;
+            }
+        };
+    }
+
+    /**
+     * Compute the tile zoom level for a viewport. A tile is at least half of the viewport
+     * width, so the viewport is covered by 3 x 3 tiles at most.
+     */
+    public static int computeZoom(double topLeftLongitude, double bottomRightLongitude) {
+        double longitudeSpan = Math.abs(bottomRightLongitude - topLeftLongitude);
+        if (longitudeSpan <= 0)
+            return MAX_ZOOM;
+
+        int zoom = (int) Math.floor(Math.log(360 / longitudeSpan) / Math.log(2)) + 1;
+        return Math.max(MIN_ZOOM, Math.min(zoom, MAX_ZOOM));
+    }
+
+    /**
+     * Returns tiles covering the viewport. Unknown tiles are created empty and not complete.
+     */
+    @NonNull
+    public synchronized List<LiveMapTile> getTiles(int zoom, double topLeftLatitude, double topLeftLongitude,
+                                                   double bottomRightLatitude, double bottomRightLongitude) {
+        int minX = LiveMapTile.longitudeToTileX(Math.min(topLeftLongitude, bottomRightLongitude), zoom);
+        int maxX = LiveMapTile.longitudeToTileX(Math.max(topLeftLongitude, bottomRightLongitude), zoom);
+        int minY = LiveMapTile.latitudeToTileY(Math.max(topLeftLatitude, bottomRightLatitude), zoom);
+        int maxY = LiveMapTile.latitudeToTileY(Math.min(topLeftLatitude, bottomRightLatitude), zoom);
+
+        List<LiveMapTile> result = new ArrayList<>((maxX - minX + 1) * (maxY - minY + 1));
+        for (int y = minY; y <= maxY; y++) {
+            for (int x = minX; x <= maxX; x++) {
+                LiveMapTile tile = new LiveMapTile(zoom, x, y);
+
+                LiveMapTile cachedTile = tiles.get(tile.getQuadKey());
+                if (cachedTile == null) {
+                    tiles.put(tile.getQuadKey(), tile);
+                } else {
+                    tile = cachedTile;
+                }
+
+                result.add(tile);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns true if the tile holds a complete and fresh result, so it doesn't have to be
+     * downloaded again.
+     */
+    @WorkerThread
+    public synchronized boolean isFresh(@NonNull LiveMapTile tile, @NonNull ResultQuality resultQuality) {
+        return tile.isComplete()
+                && System.currentTimeMillis() - tile.getUpdated() <= LIVEMAP_TILE_TTL_MS
+                && loadWaypoints(tile, resultQuality);
+    }
+
+    /**
+     * Returns geocaches known for the tile, stale ones included.
+     */
+    @WorkerThread
+    @NonNull
+    public synchronized List<Waypoint> getWaypoints(@NonNull LiveMapTile tile, @NonNull ResultQuality resultQuality) {
+        loadWaypoints(tile, resultQuality);
+
+        List<Waypoint> waypoints = tile.getWaypoints();
+        return waypoints != null ? waypoints : Collections.emptyList();
+    }
+
+    /**
+     * Replace the content of tiles with a downloaded result. Waypoints must be already stored in
+     * {@link GeocacheStore}.
+     *
+     * @param tilesToUpdate  tiles covered by the search
+     * @param waypoints      downloaded geocaches sorted by the distance from the search center
+     * @param center         search center
+     * @param completeRadius radius around the center in meters, where the result is complete
+     */
+    public synchronized void update(@NonNull Collection<LiveMapTile> tilesToUpdate, @NonNull List<Waypoint> waypoints,
+                                    @NonNull Coordinates center, double completeRadius) {
+        if (tilesToUpdate.isEmpty())
+            return;
+
+        int zoom = tilesToUpdate.iterator().next().getZoom();
+
+        Map<String, List<Waypoint>> tileWaypoints = new HashMap<>(tilesToUpdate.size());
+        for (LiveMapTile tile : tilesToUpdate)
+            tileWaypoints.put(tile.getQuadKey(), new ArrayList<>());
+
+        for (Waypoint waypoint : waypoints) {
+            List<Waypoint> list = tileWaypoints.get(LiveMapTile.getQuadKey(waypoint.getLocation().getLatitude(),
+                    waypoint.getLocation().getLongitude(), zoom));
+
+            if (list != null)
+                list.add(waypoint);
+        }
+
+        long now = System.currentTimeMillis();
+        for (LiveMapTile tile : tilesToUpdate) {
+            List<Waypoint> list = tileWaypoints.get(tile.getQuadKey());
+
+            List<String> codes = new ArrayList<>(list.size());
+            for (Waypoint waypoint : list)
+                codes.add(waypoint.gcData.getCacheID());
+
+            tile.setGeocacheCodes(codes, now, isInRadius(tile, center, completeRadius));
+            tile.setWaypoints(list);
+            tiles.put(tile.getQuadKey(), tile);
+        }
+    }
+
+    public synchronized void clear() {
+        tiles.clear();
+
+        if (indexFile.exists() && !indexFile.delete())
+            Timber.w("Unable to delete %s", indexFile);
+    }
+
+    @WorkerThread
+    public synchronized void load() {
+        if (!indexFile.exists())
+            return;
+
+        long now = System.currentTimeMillis();
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)))) {
+            if (in.readInt() != INDEX_VERSION)
+                return;
+
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                LiveMapTile tile = new LiveMapTile(in.readInt(), in.readInt(), in.readInt());
+                long updated = in.readLong();
+                boolean complete = in.readBoolean();
+
+                int codeCount = in.readInt();
+                List<String> codes = new ArrayList<>(codeCount);
+                for (int j = 0; j < codeCount; j++)
+                    codes.add(in.readUTF());
+
+                if (now - updated > LIVEMAP_TILE_TTL_MS)
+                    continue;
+
+                tile.setGeocacheCodes(codes, updated, complete);
+                tiles.put(tile.getQuadKey(), tile);
+            }
+        } catch (IOException e) {
+            Timber.e(e);
+            tiles.clear();
+        }
+    }
+
+    @WorkerThread
+    public synchronized void save() {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile)))) {
+            out.writeInt(INDEX_VERSION);
+            out.writeInt(tiles.size());
+            for (LiveMapTile tile : tiles.values()) {
+                out.writeInt(tile.getZoom());
+                out.writeInt(tile.getX());
+                out.writeInt(tile.getY());
+                out.writeLong(tile.getUpdated());
+                out.writeBoolean(tile.isComplete());
+
+                out.writeInt(tile.getGeocacheCodes().size());
+                for (String code : tile.getGeocacheCodes())
+                    out.writeUTF(code);
+            }
+        } catch (IOException e) {
+            Timber.e(e);
+        }
+    }
+
+    private boolean loadWaypoints(@NonNull LiveMapTile tile, @NonNull ResultQuality resultQuality) {
+        if (tile.getWaypoints() != null)
+            return true;
+
+        List<String> codes = tile.getGeocacheCodes();
+        Map<String, Waypoint> storedWaypoints = geocacheStore.get(codes, resultQuality, GeocacheStore.LOG_COUNT_MARKER);
+        tile.setWaypoints(new ArrayList<>(storedWaypoints.values()));
+
+        if (storedWaypoints.size() != codes.size()) {
+            tile.invalidate();
+            return false;
+        }
+        return true;
+    }
+
+    private static boolean isInRadius(@NonNull LiveMapTile tile, @NonNull Coordinates center, double radius) {
+        return center.distanceTo(Coordinates.create(tile.getTopLatitude(), tile.getLeftLongitude())) <= radius
+                && center.distanceTo(Coordinates.create(tile.getTopLatitude(), tile.getRightLongitude())) <= radius
+                && center.distanceTo(Coordinates.create(tile.getBottomLatitude(), tile.getLeftLongitude())) <= radius
+                && center.distanceTo(Coordinates.create(tile.getBottomLatitude(), tile.getRightLongitude())) <= radius;
+    }
+}
@@ -161,7 +161,7 @@ public class SearchNearestActivity extends AbstractActionBarActivity implements
                 PrefConstants.DOWNLOADING_COUNT_OF_CACHES_STEP,
                 AppConstants.DOWNLOADING_COUNT_OF_CACHES_STEP_DEFAULT);
 
-        final int max = getMaxCountOfCaches();
+        final int max = AppConstants.DOWNLOADING_COUNT_OF_CACHES_MAX;
 
         if (count > max) {
             count = max;
@@ -185,13 +185,6 @@ public class SearchNearestActivity extends AbstractActionBarActivity implements
         });
     }
 
-    private int getMaxCountOfCaches() {
-        if (Runtime.getRuntime().maxMemory() <= AppConstants.LOW_MEMORY_THRESHOLD)
-            return AppConstants.DOWNLOADING_COUNT_OF_CACHES_MAX_LOW_MEMORY;
-
-        return AppConstants.DOWNLOADING_COUNT_OF_CACHES_MAX;
-    }
-
     @Override
     protected void onSaveInstanceState(Bundle outState) {
         super.onSaveInstanceState(outState);
@@ -7,9 +7,10 @@ import android.preference.PreferenceManager;
 import android.support.annotation.NonNull;
 
 import com.arcao.geocaching.api.GeocachingApi;
-import com.arcao.geocaching.api.GeocachingApiFactory;
+import com.arcao.geocaching.api.GeocachingApi.ResultQuality;
 import com.arcao.geocaching.api.data.Geocache;
 import com.arcao.geocaching.api.data.SearchForGeocachesRequest;
+import com.arcao.geocaching.api.downloader.TokenBucketRateLimiter;
 import com.arcao.geocaching.api.data.coordinates.Coordinates;
 import com.arcao.geocaching.api.data.type.ContainerType;
 import com.arcao.geocaching.api.data.type.GeocacheType;
@@ -26,13 +27,16 @@ import com.arcao.geocaching.api.filter.NotHiddenByUsersFilter;
 import com.arcao.geocaching.api.filter.PointRadiusFilter;
 import com.arcao.geocaching.api.filter.TerrainFilter;
 import com.arcao.geocaching4locus.App;
-import com.arcao.geocaching4locus.authentication.task.GeocachingApiLoginTask;
 import com.arcao.geocaching4locus.authentication.util.Account;
 import com.arcao.geocaching4locus.authentication.util.AccountManager;
+import com.arcao.geocaching4locus.authentication.util.SessionManager;
 import com.arcao.geocaching4locus.base.constants.AppConstants;
 import com.arcao.geocaching4locus.base.constants.PrefConstants;
+import com.arcao.geocaching4locus.base.storage.DownloadCheckpoint;
+import com.arcao.geocaching4locus.base.storage.GeocacheStore;
 import com.arcao.geocaching4locus.base.task.UserTask;
-import com.arcao.geocaching4locus.base.util.DownloadingUtil;
+import com.arcao.geocaching4locus.base.util.ItemsPerRequestController;
+import com.arcao.geocaching4locus.base.util.MemoryGovernor;
 import com.arcao.geocaching4locus.base.util.PreferenceUtil;
 import com.arcao.geocaching4locus.error.exception.IntendedException;
 import com.arcao.geocaching4locus.error.exception.LocusMapRuntimeException;
@@ -45,13 +49,16 @@ import java.io.File;
 import java.io.IOException;
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Vector;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import locus.api.android.ActionDisplayPointsExtended;
 import locus.api.android.objects.PackWaypoints;
 import locus.api.mapper.DataMapper;
 import locus.api.objects.extra.Waypoint;
+import locus.api.utils.PipelinedStoreableWriter;
 import locus.api.utils.StoreableWriter;
 import timber.log.Timber;
 
@@ -60,6 +67,7 @@ import static com.arcao.geocaching.api.GeocachingApi.ResultQuality.LITE;
 
 public class DownloadNearestTask extends UserTask<Void, Integer, Intent> {
     private static final String PACK_WAYPOINTS_NAME = DownloadNearestTask.class.getName();
+    private static final int PIPELINE_CAPACITY = 2;
 
     private final Context context;
     private final SharedPreferences preferences;
@@ -68,6 +76,9 @@ public class DownloadNearestTask extends UserTask<Void, Integer, Intent> {
     private final int count;
     private final double distance;
     private final AccountManager accountManager;
+    private final SessionManager sessionManager;
+    private final GeocacheStore geocacheStore;
+    private final ItemsPerRequestController itemsPerRequestController;
 
     public interface TaskListener {
         void onTaskFinish(Intent intent);
@@ -85,6 +96,9 @@ public class DownloadNearestTask extends UserTask<Void, Integer, Intent> {
 
         preferences = PreferenceManager.getDefaultSharedPreferences(this.context);
         accountManager = App.get(context).getAccountManager();
+        sessionManager = App.get(context).getSessionManager();
+        geocacheStore = App.get(context).getGeocacheStore();
+        itemsPerRequestController = App.get(context).getItemsPerRequestController();
         distance = getDistance();
     }
 
@@ -111,25 +125,60 @@ public class DownloadNearestTask extends UserTask<Void, Integer, Intent> {
         ParcelFile dataFile = new ParcelFile(ActionDisplayPointsExtended.getCacheFileName());
 
         int current = 0;
+        final AtomicInteger stored = new AtomicInteger();
+
+        // continue a failed download with the same parameters
+        final DownloadCheckpoint checkpoint = new DownloadCheckpoint(context, PACK_WAYPOINTS_NAME, coordinates, count, distance);
+        DownloadCheckpoint.State checkpointState = checkpoint.restore(dataFile);
+        if (checkpointState != null) {
+            current = checkpointState.offset;
+            stored.set(checkpointState.offset);
+        }
+
+        // next page is downloaded while the previous one is converted and written
+        try (StoreableWriter writer = checkpointState != null
+                ? StoreableWriter.resume(dataFile, checkpointState.filePosition, checkpointState.storedCount)
+                : new StoreableWriter(ActionDisplayPointsExtended.getCacheFileOutputStream());
+             PipelinedStoreableWriter pipeline = new PipelinedStoreableWriter(writer,
+                     MemoryGovernor.isLowMemoryDevice() ? 1 : PIPELINE_CAPACITY);
+             SessionManager.Session session = sessionManager.open(TokenBucketRateLimiter.Priority.NORMAL);
+             // other searches must not break paging of the result
+             SessionManager.SearchLock searchLock = sessionManager.lockPaging()) {
 
-        try (StoreableWriter writer = new StoreableWriter(ActionDisplayPointsExtended.getCacheFileOutputStream())) {
+            GeocachingApi api = session.getApi();
 
-            GeocachingApi api = GeocachingApiFactory.create();
-            GeocachingApiLoginTask.create(context, api).perform();
+            final boolean simpleCacheData = preferences.getBoolean(PrefConstants.DOWNLOADING_SIMPLE_CACHE_DATA, false);
 
-            boolean simpleCacheData = preferences.getBoolean(PrefConstants.DOWNLOADING_SIMPLE_CACHE_DATA, false);
+            final ResultQuality resultQuality = accountManager.isPremium() && !simpleCacheData ? FULL : LITE;
+            final int logCount = simpleCacheData ? 0 : preferences.getInt(PrefConstants.DOWNLOADING_COUNT_OF_LOGS, 5);
+            int itemsPerRequest = itemsPerRequestController.getItemsPerRequest(resultQuality);
 
-            SearchForGeocachesRequest request = SearchForGeocachesRequest.builder()
-                    .resultQuality(accountManager.isPremium() && !simpleCacheData ? FULL : LITE)
+            // keep only a few geocaches in the memory when the heap is small
+            final MemoryGovernor memoryGovernor = new MemoryGovernor(resultQuality, logCount);
+            final int firstPageSize = Math.min(memoryGovernor.limitItemsPerRequest(itemsPerRequest), count);
+
+            final SearchForGeocachesRequest request = SearchForGeocachesRequest.builder()
+                    .resultQuality(resultQuality)
                     .addFilters(createFilters())
-                    .geocacheLogCount(simpleCacheData ? 0 : preferences.getInt(PrefConstants.DOWNLOADING_COUNT_OF_LOGS, 5))
-                    .maxPerPage(Math.min(AppConstants.ITEMS_PER_REQUEST, count))
+                    .geocacheLogCount(logCount)
+                    .maxPerPage(firstPageSize)
                     .build();
 
             publishProgress(current);
 
-            int itemsPerRequest = AppConstants.ITEMS_PER_REQUEST;
+            if (current > 0) {
+                // repeat the search to continue with getMoreGeocaches, LITE to not spend the quota
+                api.searchForGeocaches(SearchForGeocachesRequest.builder()
+                        .resultQuality(LITE)
+                        .addFilters(createFilters())
+                        .maxPerPage(1)
+                        .build()
+                );
+            }
+
             while (current < count) {
+                int requestedCount = current == 0 ? firstPageSize
+                        : Math.min(memoryGovernor.limitItemsPerRequest(itemsPerRequest), count - current);
                 long startTimeMillis = System.currentTimeMillis();
 
                 List<Geocache> geocacheList;
@@ -137,9 +186,12 @@ public class DownloadNearestTask extends UserTask<Void, Integer, Intent> {
                 if (current == 0) {
                     geocacheList = api.searchForGeocaches(request);
                 } else {
-                    geocacheList = api.getMoreGeocaches(request.resultQuality(), current, Math.min(itemsPerRequest, count - current), request.geocacheLogCount(), request.trackableLogCount());
+                    geocacheList = api.getMoreGeocaches(resultQuality, current, requestedCount, request.geocacheLogCount(), request.trackableLogCount());
                 }
 
+                itemsPerRequest = itemsPerRequestController.onRequestFinished(resultQuality, requestedCount,
+                        geocacheList.size(), System.currentTimeMillis() - startTimeMillis);
+
                 accountManager.getRestrictions().updateLimits(api.getLastGeocacheLimits());
 
                 if (isCancelled())
@@ -156,27 +208,57 @@ public class DownloadNearestTask extends UserTask<Void, Integer, Intent> {
                         break;
                 }
 
-                PackWaypoints pw = new PackWaypoints(PACK_WAYPOINTS_NAME);
-                for (Waypoint wpt : mapper.createLocusWaypoints(geocacheList)) {
-                    if (simpleCacheData) {
-                        wpt.setExtraOnDisplay(context.getPackageName(), UpdateActivity.class.getName(), UpdateActivity.PARAM_SIMPLE_CACHE_ID, wpt.gcData.getCacheID());
-                    }
-
-                    pw.addWaypoint(wpt);
+                final List<Geocache> geocaches = geocacheList;
+                final int offset = current + geocacheList.size();
+
+                // the page is written in chunks of PackWaypoints, checkpoint is saved after the last one
+                int chunkSize = memoryGovernor.getChunkSize(geocaches.size());
+                for (int start = 0; start < geocaches.size(); start += chunkSize) {
+                    final int chunkStart = start;
+                    final int chunkEnd = Math.min(start + chunkSize, geocaches.size());
+                    final boolean lastChunk = chunkEnd == geocaches.size();
+
+                    pipeline.write(() -> {
+                        List<Geocache> chunk = geocaches.subList(chunkStart, chunkEnd);
+                        List<Waypoint> waypoints = simpleCacheData
+                                ? mapper.createLocusMarkers(chunk)
+                                : mapper.createLocusWaypoints(chunk);
+                        // decoded geocaches are not needed anymore
+                        Collections.fill(chunk, null);
+                        geocacheStore.put(waypoints, request.resultQuality(),
+                                simpleCacheData ? GeocacheStore.LOG_COUNT_MARKER : request.geocacheLogCount());
+
+                        PackWaypoints pw = new PackWaypoints(PACK_WAYPOINTS_NAME);
+                        for (Waypoint wpt : waypoints) {
+                            if (simpleCacheData) {
+                                wpt.setExtraOnDisplay(context.getPackageName(), UpdateActivity.class.getName(), UpdateActivity.PARAM_SIMPLE_CACHE_ID, wpt.gcData.getCacheID());
+                            }
+
+                            pw.addWaypoint(wpt);
+                        }
+                        return pw;
+                    }, () -> {
+                        publishProgress(stored.addAndGet(chunkEnd - chunkStart));
+                        if (lastChunk)
+                            saveCheckpoint(checkpoint, writer, offset);
+                    });
                 }
-                writer.write(pw);
 
                 current += geocacheList.size();
-                publishProgress(current);
-
-                itemsPerRequest = DownloadingUtil.computeItemsPerRequest(itemsPerRequest, startTimeMillis);
             }
 
+            pipeline.flush();
+
+            if (isCancelled())
+                return null;
+
             Timber.i("found caches: %d", current);
         } catch (Exception e) {
-            throw handleException(e, dataFile, current);
+            throw handleException(e, dataFile, stored.get(), checkpoint);
         }
 
+        checkpoint.clear();
+
         try {
             if (current > 0)
                 return ActionDisplayPointsExtended.createSendPacksIntent(dataFile, true, true);
@@ -186,9 +268,22 @@ public class DownloadNearestTask extends UserTask<Void, Integer, Intent> {
         throw new NoResultFoundException();
     }
 
-    private Exception handleException(@NonNull Exception e, @NonNull File dataFile, int itemsStored) {
+    private void saveCheckpoint(@NonNull DownloadCheckpoint checkpoint, @NonNull StoreableWriter writer, int offset) {
+        try {
+            checkpoint.save(offset, count, writer.sync(), writer.getSize());
+        } catch (IOException e) {
+            // the download can still continue, only it can't be resumed
+            Timber.w(e);
+        }
+    }
+
+    private Exception handleException(@NonNull Exception e, @NonNull File dataFile, int itemsStored,
+                                      @NonNull DownloadCheckpoint checkpoint) {
+        // the data file is closed now, a retry can continue from the last checkpoint
+        checkpoint.seal(dataFile);
+
         if (e instanceof InvalidSessionException)
-            accountManager.invalidateOAuthToken();
+            sessionManager.invalidate();
 
         if (e instanceof IOException)
             e = new GeocachingApiException(e.getMessage(), e);
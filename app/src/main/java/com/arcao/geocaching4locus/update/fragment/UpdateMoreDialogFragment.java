@@ -2,21 +2,26 @@ package com.arcao.geocaching4locus.update.fragment;
 
 import android.app.Activity;
 import android.app.Dialog;
+import android.content.Context;
 import android.content.DialogInterface;
 import android.content.Intent;
 import android.os.Bundle;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
+import android.text.format.DateUtils;
 
 import com.afollestad.materialdialogs.MaterialDialog;
 import com.arcao.geocaching4locus.R;
 import com.arcao.geocaching4locus.base.fragment.AbstractDialogFragment;
+import com.arcao.geocaching4locus.base.util.DownloadPlanner;
+import com.arcao.geocaching4locus.base.util.ResourcesUtil;
 import com.arcao.geocaching4locus.update.task.UpdateMoreTask;
 import com.arcao.geocaching4locus.update.task.UpdateMoreTask.TaskListener;
 
 import org.apache.commons.lang3.ArrayUtils;
 
 import java.lang.ref.WeakReference;
+import java.util.Date;
 
 public final class UpdateMoreDialogFragment extends AbstractDialogFragment implements TaskListener {
     public static final String FRAGMENT_TAG = UpdateMoreDialogFragment.class.getName();
@@ -31,6 +36,8 @@ public final class UpdateMoreDialogFragment extends AbstractDialogFragment imple
     @Nullable
     private UpdateMoreTask task;
     private WeakReference<DialogListener> dialogListenerRef;
+    @Nullable
+    private CharSequence content;
 
     public static UpdateMoreDialogFragment newInstance(long[] pointIndexes) {
         Bundle args = new Bundle();
@@ -87,6 +94,52 @@ public final class UpdateMoreDialogFragment extends AbstractDialogFragment imple
         if (dialog != null) dialog.setProgress(count);
     }
 
+    @Override
+    public void onDownloadPlanned(@NonNull DownloadPlanner.Plan plan) {
+        Context context = getActivity();
+        if (context == null)
+            return;
+
+        // show a projected use of the full geocache limit
+        CharSequence fullString = ResourcesUtil.getQuantityText(context, R.plurals.plurals_geocache, plan.count, plan.count);
+        if (!plan.isLimited()) {
+            setContent(ResourcesUtil.getText(context, R.string.progress_update_geocaches_quota, fullString, plan.remainingFullCount));
+            return;
+        }
+
+        CharSequence liteString = ResourcesUtil.getQuantityText(context, R.plurals.plurals_geocache, plan.liteCount, plan.liteCount);
+        if (plan.renewTime != null) {
+            setContent(ResourcesUtil.getText(context, R.string.progress_update_geocaches_quota_limit, fullString, liteString,
+                    formatDateTime(context, plan.renewTime)));
+        } else {
+            setContent(ResourcesUtil.getText(context, R.string.progress_update_geocaches_quota_limit_unknown_renew, fullString, liteString));
+        }
+    }
+
+    @Override
+    public void onFullGeocacheLimitReached(@Nullable Date renewTime) {
+        Context context = getActivity();
+        if (context == null)
+            return;
+
+        if (renewTime != null) {
+            setContent(ResourcesUtil.getText(context, R.string.progress_update_geocaches_limit, formatDateTime(context, renewTime)));
+        } else {
+            setContent(getText(R.string.progress_update_geocaches_limit_unknown_renew));
+        }
+    }
+
+    private void setContent(@NonNull CharSequence content) {
+        this.content = content;
+
+        MaterialDialog dialog = (MaterialDialog) getDialog();
+        if (dialog != null) dialog.setContent(content);
+    }
+
+    private static CharSequence formatDateTime(@NonNull Context context, @NonNull Date date) {
+        return DateUtils.formatDateTime(context, date.getTime(), DateUtils.FORMAT_SHOW_DATE | DateUtils.FORMAT_SHOW_TIME);
+    }
+
     @Override
     public void onDismiss(DialogInterface dialog) {
         super.onDismiss(dialog);
@@ -102,7 +155,7 @@ public final class UpdateMoreDialogFragment extends AbstractDialogFragment imple
         long[] pointIndexes = getArguments().getLongArray(PARAM_POINT_INDEXES);
 
         return new MaterialDialog.Builder(getActivity())
-                .content(R.string.progress_update_geocaches)
+                .content(content != null ? content : getText(R.string.progress_update_geocaches))
                 .negativeText(R.string.button_cancel)
                 .progress(false, ArrayUtils.getLength(pointIndexes), true)
                 .build();
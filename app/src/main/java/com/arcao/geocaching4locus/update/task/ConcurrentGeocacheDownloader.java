@@ -0,0 +1,121 @@
+package com.arcao.geocaching4locus.update.task;
+
+import android.content.Context;
+import android.support.annotation.NonNull;
+
+import com.arcao.geocaching.api.GeocachingApi;
+import com.arcao.geocaching.api.GeocachingApi.ResultQuality;
+import com.arcao.geocaching.api.data.Geocache;
+import com.arcao.geocaching.api.data.GeocacheLimits;
+import com.arcao.geocaching.api.data.SearchForGeocachesRequest;
+import com.arcao.geocaching.api.downloader.TokenBucketRateLimiter;
+import com.arcao.geocaching.api.filter.CacheCodeFilter;
+import com.arcao.geocaching4locus.App;
+import com.arcao.geocaching4locus.authentication.util.SessionManager;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import timber.log.Timber;
+
+/**
+ * Runs searchForGeocaches requests for geocache codes on a fixed count of threads. Each request
+ * borrows a GeocachingApi instance with an opened session from {@link SessionManager}, all of
+ * them share the OkHttpClient and the rate limiter of the downloader. Requests run concurrently
+ * with other searches by geocache codes, but wait for a task paging a search result.
+ */
+class ConcurrentGeocacheDownloader implements Closeable {
+    static class Result {
+        final List<Geocache> geocaches;
+        final GeocacheLimits limits;
+        final long requestDuration;
+
+        Result(List<Geocache> geocaches, GeocacheLimits limits, long requestDuration) {
+            this.geocaches = geocaches;
+            this.limits = limits;
+            this.requestDuration = requestDuration;
+        }
+    }
+
+    private static final long TERMINATION_TIMEOUT_SECONDS = 30;
+
+    private final SessionManager sessionManager;
+    private final ExecutorService executor;
+
+    ConcurrentGeocacheDownloader(@NonNull Context context, int concurrency) {
+        sessionManager = App.get(context).getSessionManager();
+
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(concurrency,
+                r -> new Thread(r, "ConcurrentGeocacheDownloader #" + threadCount.incrementAndGet()));
+    }
+
+    /**
+     * Submit a download of geocaches. Results of the returned futures can be used in any order.
+     */
+    @NonNull
+    Future<Result> submit(@NonNull String[] geocacheCodes, @NonNull ResultQuality resultQuality, int logCount) {
+        return executor.submit(() -> {
+            try (SessionManager.Session session = sessionManager.open(TokenBucketRateLimiter.Priority.NORMAL);
+                 SessionManager.SearchLock searchLock = sessionManager.lockSearch()) {
+                GeocachingApi api = session.getApi();
+
+                long startTimeMillis = System.currentTimeMillis();
+
+                List<Geocache> geocaches = api.searchForGeocaches(SearchForGeocachesRequest.builder()
+                        .resultQuality(resultQuality)
+                        .addFilter(new CacheCodeFilter(geocacheCodes))
+                        .geocacheLogCount(logCount)
+                        .maxPerPage(geocacheCodes.length)
+                        .build()
+                );
+
+                return new Result(geocaches, api.getLastGeocacheLimits(), System.currentTimeMillis() - startTimeMillis);
+            }
+        });
+    }
+
+    /**
+     * Drop all not started requests, interrupt running ones and wait until they end, so no
+     * search of this downloader outlives the task which used it.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+
+        try {
+            if (!executor.awaitTermination(TERMINATION_TIMEOUT_SECONDS, TimeUnit.SECONDS))
+                Timber.w("Downloader was not terminated in time.");
+        } catch (InterruptedException e) {
+            Timber.w(e);
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Wait for a result of {@link #submit(String[], ResultQuality, int)}.
+     *
+     * @throws Exception if the request failed
+     */
+    @NonNull
+    static Result await(@NonNull Future<Result> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+
+            if (cause instanceof Exception)
+                throw (Exception) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+
+            throw e;
+        }
+    }
+}
@@ -4,35 +4,43 @@ import android.content.Context;
 import android.content.Intent;
 import android.content.SharedPreferences;
 import android.preference.PreferenceManager;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.text.TextUtils;
 
-import com.arcao.geocaching.api.GeocachingApi;
 import com.arcao.geocaching.api.GeocachingApi.ResultQuality;
 import com.arcao.geocaching.api.GeocachingApiFactory;
 import com.arcao.geocaching.api.data.Geocache;
-import com.arcao.geocaching.api.data.SearchForGeocachesRequest;
 import com.arcao.geocaching.api.exception.InvalidSessionException;
-import com.arcao.geocaching.api.filter.CacheCodeFilter;
 import com.arcao.geocaching4locus.App;
-import com.arcao.geocaching4locus.authentication.task.GeocachingApiLoginTask;
 import com.arcao.geocaching4locus.authentication.util.AccountManager;
 import com.arcao.geocaching4locus.base.constants.AppConstants;
 import com.arcao.geocaching4locus.base.constants.PrefConstants;
+import com.arcao.geocaching4locus.base.storage.GeocacheStore;
+import com.arcao.geocaching4locus.base.task.TaskScheduler;
 import com.arcao.geocaching4locus.base.task.UserTask;
-import com.arcao.geocaching4locus.base.util.DownloadingUtil;
+import com.arcao.geocaching4locus.base.util.DownloadPlanner;
+import com.arcao.geocaching4locus.base.util.ItemsPerRequestController;
 import com.arcao.geocaching4locus.base.util.LocusMapUtil;
 import com.arcao.geocaching4locus.error.exception.LocusMapRuntimeException;
 import com.arcao.geocaching4locus.error.handler.ExceptionHandler;
 
 import java.lang.ref.WeakReference;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Deque;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
 
-import locus.api.android.ActionTools;
 import locus.api.android.utils.LocusUtils.LocusVersion;
 import locus.api.mapper.DataMapper;
 import locus.api.mapper.WaypointMerger;
 import locus.api.objects.extra.Waypoint;
+import locus.api.utils.LocusWaypointBridge;
 import timber.log.Timber;
 
 import static com.arcao.geocaching.api.GeocachingApi.ResultQuality.FULL;
@@ -43,21 +51,43 @@ public class UpdateMoreTask extends UserTask<long[], Integer, Boolean> {
         void onTaskFinished(boolean success);
         void onTaskError(Intent intent);
         void onProgressUpdate(int count);
+        void onDownloadPlanned(@NonNull DownloadPlanner.Plan plan);
+        void onFullGeocacheLimitReached(@Nullable Date renewTime);
     }
 
     private final Context context;
     private final WeakReference<TaskListener> taskListenerRef;
     private final AccountManager accountManager;
+    private final GeocacheStore geocacheStore;
+    private final ItemsPerRequestController itemsPerRequestController;
     private final SharedPreferences preferences;
 
+    // projected use of the full geocache limit, the user is told before the first FULL request
+    private volatile DownloadPlanner.Plan projectedPlan;
+    private boolean projectedPlanReported;
+
+    // geocaches over the full geocache limit get LITE data only, the user is told once
+    private volatile Date fullGeocacheLimitRenewTime;
+    private volatile boolean fullGeocacheLimitReached;
+    private boolean fullGeocacheLimitReported;
+
     public UpdateMoreTask(Context context, TaskListener listener) {
         this.context = context.getApplicationContext();
         taskListenerRef = new WeakReference<>(listener);
 
         accountManager = App.get(this.context).getAccountManager();
+        geocacheStore = App.get(this.context).getGeocacheStore();
+        itemsPerRequestController = App.get(this.context).getItemsPerRequestController();
         preferences = PreferenceManager.getDefaultSharedPreferences(context);
     }
 
+    @NonNull
+    @Override
+    protected TaskScheduler.Lane getLane() {
+        // downloads run in own threads, the task itself waits mostly for Locus Map
+        return TaskScheduler.Lane.LOCUS;
+    }
+
     @Override
     protected void onPostExecute(Boolean result) {
         super.onPostExecute(result);
@@ -69,7 +99,19 @@ public class UpdateMoreTask extends UserTask<long[], Integer, Boolean> {
     @Override
     protected void onProgressUpdate(Integer... values) {
         TaskListener listener = taskListenerRef.get();
-        if (listener != null) listener.onProgressUpdate(values[0]);
+        if (listener == null)
+            return;
+
+        DownloadPlanner.Plan plan = projectedPlan;
+        if (plan != null && !projectedPlanReported) {
+            projectedPlanReported = true;
+            listener.onDownloadPlanned(plan);
+        }
+        if (fullGeocacheLimitReached && !fullGeocacheLimitReported) {
+            fullGeocacheLimitReported = true;
+            listener.onFullGeocacheLimitReached(fullGeocacheLimitRenewTime);
+        }
+        listener.onProgressUpdate(values[0]);
     }
 
     @Override
@@ -83,70 +125,165 @@ public class UpdateMoreTask extends UserTask<long[], Integer, Boolean> {
 
         final LocusVersion locusVersion = LocusMapUtil.getLocusVersion(context);
 
-        try {
-            GeocachingApi api = GeocachingApiFactory.create();
-            GeocachingApiLoginTask.create(context, api).perform();
-
+        try (LocusWaypointBridge bridge = new LocusWaypointBridge(context, locusVersion);
+             ConcurrentGeocacheDownloader downloader = new ConcurrentGeocacheDownloader(context,
+                     AppConstants.UPDATE_MORE_CONCURRENT_REQUESTS)) {
             final boolean premium = accountManager.isPremium();
 
             ResultQuality resultQuality = premium ? FULL : LITE;
             int logCount = premium ? preferences.getInt(PrefConstants.DOWNLOADING_COUNT_OF_LOGS, 5) : 0;
 
-            int itemsPerRequest = AppConstants.ITEMS_PER_REQUEST;
+            // geocaches over the full geocache limit are downloaded in LITE quality only, the
+            // limit is planned after the first store lookup
+            DownloadPlanner planner = new DownloadPlanner(accountManager);
+            DownloadPlanner.Plan plan = null;
+            int remainingCount = 0;
+            int liteCount = 0;
+
+            int itemsPerRequest = itemsPerRequestController.getItemsPerRequest(resultQuality);
+            int submitted = 0;
+            int readCount = Math.min(count, itemsPerRequest);
+            Future<List<Waypoint>> read = bridge.read(ids, 0, readCount);
+            Deque<Chunk> chunks = new ArrayDeque<>(AppConstants.UPDATE_MORE_CONCURRENT_REQUESTS);
+
             while (current < count) {
-                long startTimeMillis = System.currentTimeMillis();
+                // keep more requests running, each one for a chunk of waypoints
+                while (read != null && chunks.size() < AppConstants.UPDATE_MORE_CONCURRENT_REQUESTS) {
+                    // prepare old cache data
+                    Chunk chunk = new Chunk(readCount, retrieveWaypoints(read, ids, submitted));
+                    submitted += readCount;
+
+                    // read the next chunk from Locus while this one is downloaded
+                    readCount = Math.min(count - submitted, itemsPerRequest);
+                    read = readCount > 0 ? bridge.read(ids, submitted, readCount) : null;
+
+                    if (!chunk.oldWaypoints.isEmpty()) {
+                        // use geocaches downloaded a moment ago, download only the rest
+                        String[] geocacheCodes = getGeocacheCodes(chunk.oldWaypoints);
+                        chunk.storedWaypoints = geocacheStore.get(geocacheCodes, resultQuality, logCount,
+                                AppConstants.GEOCACHE_STORE_UPDATE_MAX_AGE_MS);
+                        String[] missingGeocacheCodes = GeocacheStore.getMissingGeocacheCodes(geocacheCodes, chunk.storedWaypoints);
+
+                        if (plan == null) {
+                            // not yet read points are expected to be missing in the store too
+                            plan = planner.plan(missingGeocacheCodes.length + count - submitted, resultQuality);
+                            remainingCount = plan.count;
+
+                            if (resultQuality == FULL) {
+                                projectedPlan = plan;
+                                publishProgress(current);
+                            }
+                        }
+
+                        int requestedCount = Math.min(missingGeocacheCodes.length, remainingCount);
+                        remainingCount -= requestedCount;
+
+                        chunk.downloadCount = requestedCount;
+                        if (requestedCount > 0)
+                            chunk.download = downloader.submit(Arrays.copyOf(missingGeocacheCodes, requestedCount), resultQuality, logCount);
+
+                        if (requestedCount < missingGeocacheCodes.length) {
+                            chunk.liteDownload = downloader.submit(Arrays.copyOfRange(missingGeocacheCodes, requestedCount,
+                                    missingGeocacheCodes.length), LITE, 0);
+
+                            if (!fullGeocacheLimitReached) {
+                                fullGeocacheLimitRenewTime = plan.renewTime;
+                                fullGeocacheLimitReached = true;
+                                publishProgress(current);
+                            }
+                        }
+                    }
+
+                    chunks.addLast(chunk);
+                }
 
-                // prepare old cache data
-                List<Waypoint> oldWaypoints = retrieveWaypointsByIds(context, locusVersion, ids, current, itemsPerRequest);
+                // merge chunks in the original order
+                Chunk chunk = chunks.pollFirst();
 
-                if (oldWaypoints.isEmpty()) {
+                if (chunk.oldWaypoints.isEmpty()) {
                     // all Waypoints are without geocaching data
-                    current += Math.min(ids.length - current, itemsPerRequest);
-                    publishProgress(current);
+                    current += chunk.count;
+                    updateLocusWaypoints(bridge, Collections.emptyList(), current);
                     continue;
                 }
 
-                List<Geocache> cachesToAdd = api.searchForGeocaches(SearchForGeocachesRequest.builder()
-                        .resultQuality(resultQuality)
-                        .addFilter(new CacheCodeFilter(getGeocacheCodes(oldWaypoints)))
-                        .geocacheLogCount(logCount)
-                        .maxPerPage(itemsPerRequest)
-                        .build()
-                );
+                List<Geocache> cachesToAdd = Collections.emptyList();
+                if (chunk.download != null) {
+                    ConcurrentGeocacheDownloader.Result result = ConcurrentGeocacheDownloader.await(chunk.download);
+                    accountManager.getRestrictions().updateLimits(result.limits);
+
+                    cachesToAdd = result.geocaches;
+                    itemsPerRequest = itemsPerRequestController.onRequestFinished(resultQuality, chunk.downloadCount,
+                            cachesToAdd.size(), result.requestDuration);
+                }
 
-                accountManager.getRestrictions().updateLimits(api.getLastGeocacheLimits());
+                List<Geocache> liteCaches = Collections.emptyList();
+                if (chunk.liteDownload != null) {
+                    ConcurrentGeocacheDownloader.Result result = ConcurrentGeocacheDownloader.await(chunk.liteDownload);
+                    liteCaches = result.geocaches;
+                }
 
                 if (isCancelled())
                     return false;
 
-                if (cachesToAdd.isEmpty())
+                if (cachesToAdd.isEmpty() && liteCaches.isEmpty() && chunk.storedWaypoints.isEmpty())
                     break;
 
-                for (Waypoint p : mapper.createLocusWaypoints(cachesToAdd)) {
+                List<Waypoint> newWaypoints = new ArrayList<>(chunk.storedWaypoints.values());
+                List<Waypoint> downloadedWaypoints = mapper.createLocusWaypoints(cachesToAdd);
+                geocacheStore.put(downloadedWaypoints, resultQuality, logCount);
+                newWaypoints.addAll(downloadedWaypoints);
+
+                for (Waypoint p : newWaypoints) {
                     // Geocaching API can return caches in a different order
-                    Waypoint oldWaypoint = getWaypointByGeocacheCode(oldWaypoints, p.gcData.getCacheID());
+                    Waypoint oldWaypoint = getWaypointByGeocacheCode(chunk.oldWaypoints, p.gcData.getCacheID());
                     merger.mergeWaypoint(p, oldWaypoint);
+                }
 
-                    // update new point data in Locus
-                    ActionTools.updateLocusWaypoint(context, locusVersion, p, false);
+                // refresh only a state of geocaches over the full geocache limit, these are not
+                // stored, they would only take place of full geocaches in the store
+                List<Waypoint> liteWaypoints = mapper.createLocusWaypoints(liteCaches);
+
+                for (Waypoint p : liteWaypoints) {
+                    Waypoint oldWaypoint = getWaypointByGeocacheCode(chunk.oldWaypoints, p.gcData.getCacheID());
+                    if (oldWaypoint == null)
+                        continue;
+
+                    merger.mergeLiteWaypoint(oldWaypoint, p);
+                    newWaypoints.add(oldWaypoint);
                 }
+                liteCount += liteWaypoints.size();
 
-                current += Math.min(ids.length - current, itemsPerRequest);
-                publishProgress(current);
+                // update new points data in Locus while next chunks are downloaded
+                current += chunk.count;
+                updateLocusWaypoints(bridge, newWaypoints, current);
+            }
 
-                itemsPerRequest = DownloadingUtil.computeItemsPerRequest(itemsPerRequest, startTimeMillis);
+            try {
+                bridge.flush();
+            } catch (Exception e) {
+                throw new LocusMapRuntimeException(e);
             }
 
-            Timber.i("updated caches: %d", current);
+            Timber.i("updated caches: %d, LITE only over the limit: %d", current, liteCount);
+            Timber.d("%s", GeocachingApiFactory.getRateLimiter());
 
             publishProgress(current);
             return current > 0;
         } catch (InvalidSessionException e) {
-            accountManager.invalidateOAuthToken();
+            App.get(context).getSessionManager().invalidate();
             throw e;
         }
     }
 
+    private void updateLocusWaypoints(LocusWaypointBridge bridge, List<Waypoint> waypoints, int updated) {
+        try {
+            bridge.update(waypoints, () -> publishProgress(updated));
+        } catch (Exception e) {
+            throw new LocusMapRuntimeException(e);
+        }
+    }
+
     private Waypoint getWaypointByGeocacheCode(Iterable<Waypoint> waypoints, String geocacheCode) {
         if (TextUtils.isEmpty(geocacheCode))
             return null;
@@ -160,14 +297,13 @@ public class UpdateMoreTask extends UserTask<long[], Integer, Boolean> {
         return null;
     }
 
-    private List<Waypoint> retrieveWaypointsByIds(Context context, LocusVersion locusVersion, long[] ids, int currentItem, int itemsPerRequest) {
+    private List<Waypoint> retrieveWaypoints(Future<List<Waypoint>> read, long[] ids, int currentItem) {
         try {
-            int count = Math.min(ids.length - currentItem, itemsPerRequest);
-            List<Waypoint> waypoints = new ArrayList<>(count);
+            List<Waypoint> readWaypoints = LocusWaypointBridge.await(read);
+            List<Waypoint> waypoints = new ArrayList<>(readWaypoints.size());
 
-            for (int i = 0; i < count; i++) {
-                // get old waypoint from Locus
-                Waypoint wpt = ActionTools.getLocusWaypoint(context, locusVersion, ids[currentItem + i]);
+            for (int i = 0; i < readWaypoints.size(); i++) {
+                Waypoint wpt = readWaypoints.get(i);
                 if (LocusMapUtil.isGeocache(wpt)) {
                     Timber.w("Waypoint " + (currentItem + i) + " with id " + ids[currentItem + i] + " isn't geocache. Skipped...");
                     continue;
@@ -192,6 +328,21 @@ public class UpdateMoreTask extends UserTask<long[], Integer, Boolean> {
         return ret;
     }
 
+    private static class Chunk {
+        final int count;
+        final List<Waypoint> oldWaypoints;
+        Map<String, Waypoint> storedWaypoints = Collections.emptyMap();
+        // count of geocache codes sent in the download request
+        int downloadCount;
+        Future<ConcurrentGeocacheDownloader.Result> download;
+        Future<ConcurrentGeocacheDownloader.Result> liteDownload;
+
+        Chunk(int count, List<Waypoint> oldWaypoints) {
+            this.count = count;
+            this.oldWaypoints = oldWaypoints;
+        }
+    }
+
     @Override
     protected void onCancelled() {
         super.onCancelled();
@@ -8,14 +8,14 @@ import android.os.Parcelable;
 import android.preference.PreferenceManager;
 
 import com.arcao.geocaching.api.GeocachingApi;
-import com.arcao.geocaching.api.GeocachingApiFactory;
+import com.arcao.geocaching.api.downloader.TokenBucketRateLimiter;
 import com.arcao.geocaching.api.data.Geocache;
 import com.arcao.geocaching.api.data.GeocacheLog;
 import com.arcao.geocaching.api.data.Trackable;
 import com.arcao.geocaching.api.exception.InvalidSessionException;
 import com.arcao.geocaching4locus.App;
-import com.arcao.geocaching4locus.authentication.task.GeocachingApiLoginTask;
 import com.arcao.geocaching4locus.authentication.util.AccountManager;
+import com.arcao.geocaching4locus.authentication.util.SessionManager;
 import com.arcao.geocaching4locus.base.constants.AppConstants;
 import com.arcao.geocaching4locus.base.constants.PrefConstants;
 import com.arcao.geocaching4locus.base.task.UserTask;
@@ -39,7 +39,7 @@ import timber.log.Timber;
 
 import static locus.api.mapper.Util.applyUnavailabilityForGeocache;
 
-public class UpdateTask extends UserTask<UpdateTaskData, Integer, UpdateTaskData> {
+public class UpdateTask extends UserTask<UpdateTaskData, Integer, Intent> {
 
     public interface TaskListener {
         enum State {
@@ -66,66 +66,12 @@ public class UpdateTask extends UserTask<UpdateTaskData, Integer, UpdateTaskData
     }
 
     @Override
-    protected void onPostExecute(UpdateTaskData result) {
+    protected void onPostExecute(Intent result) {
         super.onPostExecute(result);
 
-        SharedPreferences preferences = PreferenceManager.getDefaultSharedPreferences(context);
-        boolean replaceCache = PrefConstants.DOWNLOADING_FULL_CACHE_DATE_ON_SHOW__UPDATE_ONCE.equals(preferences.getString(PrefConstants.DOWNLOADING_FULL_CACHE_DATE_ON_SHOW, PrefConstants.DOWNLOADING_FULL_CACHE_DATE_ON_SHOW__UPDATE_ONCE));
-        boolean downloadLogsUpdateCache = preferences.getBoolean(PrefConstants.DOWNLOAD_LOGS_UPDATE_CACHE, true);
-        boolean disableDnfNmNaGeocaches = preferences.getBoolean(PrefConstants.DOWNLOADING_DISABLE_DNF_NM_NA_CACHES, false);
-        int disableDnfNmNaGeocachesThreshold = preferences.getInt(PrefConstants.DOWNLOADING_DISABLE_DNF_NM_NA_CACHES_LOGS_COUNT, 1);
-
-        LocusUtils.LocusVersion locusVersion;
-        try {
-            try {
-                locusVersion = LocusUtils.getActiveVersion(context);
-                if (locusVersion == null) {
-                    throw new IllegalStateException("Locus is not installed.");
-                }
-            } catch (Throwable t) {
-                throw new LocusMapRuntimeException(t);
-            }
-
-            if (result == null || result.newPoint == null) {
-                TaskListener listener = taskListenerRef.get();
-                if (listener != null) {
-                    listener.onTaskFinished(null);
-                }
-                return;
-            }
-
-            if (result.updateLogs && !downloadLogsUpdateCache) {
-                merger.mergeGeocachingLogs(result.oldPoint, result.newPoint);
-
-                // only when this feature is enabled
-                if (disableDnfNmNaGeocaches)
-                    applyUnavailabilityForGeocache(result.oldPoint, disableDnfNmNaGeocachesThreshold);
-
-                result.newPoint = result.oldPoint;
-            } else {
-                merger.mergeWaypoint(result.newPoint, result.oldPoint);
-
-                if (replaceCache) {
-                    result.newPoint.removeExtraOnDisplay();
-                }
-            }
-
-            // if Waypoint is already in DB we must update it manually
-            if (result.oldPoint != null) {
-                try {
-                    ActionTools.updateLocusWaypoint(context, locusVersion, result.newPoint, false);
-                } catch (Throwable t) {
-                    throw new LocusMapRuntimeException(t);
-                }
-            }
-        } catch (LocusMapRuntimeException e) {
-            onException(e);
-            return;
-        }
-
         TaskListener listener = taskListenerRef.get();
         if (listener != null) {
-            listener.onTaskFinished(LocusUtils.prepareResultExtraOnDisplayIntent(result.newPoint, replaceCache));
+            listener.onTaskFinished(result);
         }
     }
 
@@ -154,16 +100,16 @@ public class UpdateTask extends UserTask<UpdateTaskData, Integer, UpdateTaskData
     }
 
     @Override
-    protected UpdateTaskData doInBackground(UpdateTaskData... params) throws Exception {
+    protected Intent doInBackground(UpdateTaskData... params) throws Exception {
         AccountManager accountManager = App.get(context).getAccountManager();
+        SessionManager sessionManager = App.get(context).getSessionManager();
         SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
 
         UpdateTaskData result = params[0];
-        try {
-            publishProgress();
+        publishProgress();
 
-            GeocachingApi api = GeocachingApiFactory.create();
-            GeocachingApiLoginTask.create(context, api).perform();
+        try (SessionManager.Session session = sessionManager.open(TokenBucketRateLimiter.Priority.INTERACTIVE)) {
+            GeocachingApi api = session.getApi();
 
             int logCount = prefs.getInt(PrefConstants.DOWNLOADING_COUNT_OF_LOGS, 5);
             int originalLogCount = logCount;
@@ -175,7 +121,10 @@ public class UpdateTask extends UserTask<UpdateTaskData, Integer, UpdateTaskData
                 logCount = 0;
             }
 
-            Geocache cache = api.getGeocache(resultQuality, result.cacheId, logCount, 0);
+            Geocache cache;
+            try (SessionManager.SearchLock searchLock = sessionManager.lockSearch()) {
+                cache = api.getGeocache(resultQuality, result.cacheId, logCount, 0);
+            }
             accountManager.getRestrictions().updateLimits(api.getLastGeocacheLimits());
 
             if (cache == null)
@@ -223,13 +172,66 @@ public class UpdateTask extends UserTask<UpdateTaskData, Integer, UpdateTaskData
 
             if (isCancelled())
                 return null;
-
-            return result;
         } catch (InvalidSessionException e) {
-            accountManager.invalidateOAuthToken();
+            sessionManager.invalidate();
 
             throw e;
         }
+
+        // merging of many logs and the update of Locus take a while, keep it out of the UI thread
+        return mergeAndUpdateLocus(result);
+    }
+
+    /**
+     * Merge the downloaded geocache with the Locus one, write it back to Locus and prepare
+     * a result intent.
+     */
+    private Intent mergeAndUpdateLocus(UpdateTaskData result) {
+        SharedPreferences preferences = PreferenceManager.getDefaultSharedPreferences(context);
+        boolean replaceCache = PrefConstants.DOWNLOADING_FULL_CACHE_DATE_ON_SHOW__UPDATE_ONCE.equals(preferences.getString(PrefConstants.DOWNLOADING_FULL_CACHE_DATE_ON_SHOW, PrefConstants.DOWNLOADING_FULL_CACHE_DATE_ON_SHOW__UPDATE_ONCE));
+        boolean downloadLogsUpdateCache = preferences.getBoolean(PrefConstants.DOWNLOAD_LOGS_UPDATE_CACHE, true);
+        boolean disableDnfNmNaGeocaches = preferences.getBoolean(PrefConstants.DOWNLOADING_DISABLE_DNF_NM_NA_CACHES, false);
+        int disableDnfNmNaGeocachesThreshold = preferences.getInt(PrefConstants.DOWNLOADING_DISABLE_DNF_NM_NA_CACHES_LOGS_COUNT, 1);
+
+        LocusUtils.LocusVersion locusVersion;
+        try {
+            locusVersion = LocusUtils.getActiveVersion(context);
+            if (locusVersion == null) {
+                throw new IllegalStateException("Locus is not installed.");
+            }
+        } catch (Throwable t) {
+            throw new LocusMapRuntimeException(t);
+        }
+
+        if (result.updateLogs && !downloadLogsUpdateCache) {
+            merger.mergeGeocachingLogs(result.oldPoint, result.newPoint);
+
+            // only when this feature is enabled
+            if (disableDnfNmNaGeocaches)
+                applyUnavailabilityForGeocache(result.oldPoint, disableDnfNmNaGeocachesThreshold);
+
+            result.newPoint = result.oldPoint;
+        } else {
+            merger.mergeWaypoint(result.newPoint, result.oldPoint);
+
+            if (replaceCache) {
+                result.newPoint.removeExtraOnDisplay();
+            }
+        }
+
+        if (isCancelled())
+            return null;
+
+        // if Waypoint is already in DB we must update it manually
+        if (result.oldPoint != null) {
+            try {
+                ActionTools.updateLocusWaypoint(context, locusVersion, result.newPoint, false);
+            } catch (Throwable t) {
+                throw new LocusMapRuntimeException(t);
+            }
+        }
+
+        return LocusUtils.prepareResultExtraOnDisplayIntent(result.newPoint, replaceCache);
     }
 
     @Override
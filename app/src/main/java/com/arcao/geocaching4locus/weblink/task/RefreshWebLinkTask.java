@@ -6,12 +6,12 @@ import android.os.Parcel;
 import android.os.Parcelable;
 
 import com.arcao.geocaching.api.GeocachingApi;
-import com.arcao.geocaching.api.GeocachingApiFactory;
+import com.arcao.geocaching.api.downloader.TokenBucketRateLimiter;
 import com.arcao.geocaching.api.data.Geocache;
 import com.arcao.geocaching.api.exception.InvalidSessionException;
 import com.arcao.geocaching4locus.App;
-import com.arcao.geocaching4locus.authentication.task.GeocachingApiLoginTask;
 import com.arcao.geocaching4locus.authentication.util.AccountManager;
+import com.arcao.geocaching4locus.authentication.util.SessionManager;
 import com.arcao.geocaching4locus.base.task.UserTask;
 import com.arcao.geocaching4locus.error.exception.CacheNotFoundException;
 import com.arcao.geocaching4locus.error.handler.ExceptionHandler;
@@ -36,12 +36,14 @@ public class RefreshWebLinkTask extends UserTask<String, Void, RefreshWebLinkTas
     private final Context context;
     private final WeakReference<TaskListener> taskListenerRef;
     private final AccountManager accountManager;
+    private final SessionManager sessionManager;
 
     public RefreshWebLinkTask(Context context, TaskListener listener) {
         this.taskListenerRef = new WeakReference<>(listener);
         this.context = context.getApplicationContext();
 
         accountManager = App.get(context).getAccountManager();
+        sessionManager = App.get(context).getSessionManager();
     }
 
     @Override
@@ -66,11 +68,13 @@ public class RefreshWebLinkTask extends UserTask<String, Void, RefreshWebLinkTas
 
         String cacheId = params[0];
 
-        GeocachingApi api = GeocachingApiFactory.create();
-        GeocachingApiLoginTask.create(context, api).perform();
+        try (SessionManager.Session session = sessionManager.open(TokenBucketRateLimiter.Priority.INTERACTIVE)) {
+            GeocachingApi api = session.getApi();
 
-        try {
-            Geocache cache = api.getGeocache(GeocachingApi.ResultQuality.LITE, cacheId, 0, 0);
+            Geocache cache;
+            try (SessionManager.SearchLock searchLock = sessionManager.lockSearch()) {
+                cache = api.getGeocache(GeocachingApi.ResultQuality.LITE, cacheId, 0, 0);
+            }
 
             accountManager.getRestrictions().updateLimits(api.getLastGeocacheLimits());
 
@@ -82,7 +86,7 @@ public class RefreshWebLinkTask extends UserTask<String, Void, RefreshWebLinkTas
 
             return new ParcelableWaypoint(mapper.createLocusWaypoint(cache));
         } catch (InvalidSessionException e) {
-            accountManager.invalidateOAuthToken();
+            sessionManager.invalidate();
             throw e;
         }
     }
@@ -1,9 +1,11 @@
 package com.arcao.wherigoservice.api;
 
 import com.arcao.geocaching.api.GeocachingApiFactory;
+import com.arcao.geocaching.api.downloader.OkHttpClientDownloader;
 
 public final class WherigoApiFactory {
     public static WherigoService create() {
-        return new WherigoServiceImpl(GeocachingApiFactory.getDownloader());
+        // Wherigo service is not limited by the Geocaching Live API rate limit
+        return new WherigoServiceImpl(new OkHttpClientDownloader(GeocachingApiFactory.getOkHttpClient()));
     }
 }
@@ -1,22 +1,42 @@
 package locus.api.mapper;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.regex.Pattern;
-
+/**
+ * Converts BBCode tags with a value (<code>[tag=value]content[/tag=value]</code>) left in
+ * geocache descriptions to HTML in a single scan. Tags are matched the same way as the former
+ * regular expressions did: the value ends with the first <code>]</code>, the content ends with
+ * the first closing tag of the same type. Tags nested in a value or in a content of other tag
+ * are converted too. Unmatched tags are kept as they are.
+ */
 final class BadBBCodeFixer {
-    private static final Map<Pattern, String> BBCODE_MAP = new HashMap<>();
-    private static final int BBCODE_PATTERN_FLAGS = Pattern.CASE_INSENSITIVE | Pattern.DOTALL;
+    private static final int MAX_REUSED_BUFFER_SIZE = 256 * 1024;
+    private static final ThreadLocal<StringBuilder> BUFFER = new ThreadLocal<>();
+
+    private enum Tag {
+        ALIGN("align"),
+        COLOR("color"),
+        SIZE("size"),
+        IMG("img"),
+        EMAIL("email"),
+        URL("url");
+
+        final String name;
 
-    static {
-        BBCODE_MAP.put(Pattern.compile("\\[align=(.+?)](.+?)\\[/align=[^]]+]", BBCODE_PATTERN_FLAGS), "<div align='$1'>$2</div>");
-        BBCODE_MAP.put(Pattern.compile("\\[color=(.+?)](.+?)\\[/color=[^]]+]", BBCODE_PATTERN_FLAGS), "<font color='$1'>$2</font>");
-        BBCODE_MAP.put(Pattern.compile("\\[size=(.+?)](.+?)\\[/size=[^]]+]", BBCODE_PATTERN_FLAGS), "<font size='$1'>$2</font>");
-        BBCODE_MAP.put(Pattern.compile("\\[img=(.+?),(.+?)](.+?)\\[/img=[^]]+]", BBCODE_PATTERN_FLAGS), "<img width='$1' height='$2' src='$3' />");
-        BBCODE_MAP.put(Pattern.compile("\\[email=(.+?)](.+?)\\[/email=[^]]+]", BBCODE_PATTERN_FLAGS), "<a href='mailto:$1'>$2</a>");
-        BBCODE_MAP.put(Pattern.compile("\\[url=(.+?)](.+?)\\[/url=[^]]+]", BBCODE_PATTERN_FLAGS), "<a href='$1'>$2</a>");
+        Tag(String name) {
+            this.name = name;
+        }
     }
 
+    private static final Tag[] TAGS = Tag.values();
+
+    // indexes in a match array
+    private static final int VALUE_START = 0;
+    private static final int VALUE_END = 1;
+    private static final int VALUE2_START = 2;
+    private static final int VALUE2_END = 3;
+    private static final int CONTENT_START = 4;
+    private static final int CONTENT_END = 5;
+    private static final int MATCH_END = 6;
+
     private BadBBCodeFixer() {
     }
 
@@ -24,12 +44,218 @@ final class BadBBCodeFixer {
         if (text == null)
             return null;
 
-        String html = text;
+        if (text.indexOf('[') == -1)
+            return text;
+
+        StringBuilder out = BUFFER.get();
+        if (out == null) {
+            out = new StringBuilder(text.length() + 64);
+        } else {
+            BUFFER.set(null);
+            out.setLength(0);
+        }
+
+        try {
+            if (!convert(text, 0, text.length(), out))
+                return text;
+
+            return out.toString();
+        } finally {
+            if (out.capacity() <= MAX_REUSED_BUFFER_SIZE)
+                BUFFER.set(out);
+        }
+    }
+
+    /**
+     * Append converted text between start and end to out.
+     *
+     * @return true if any tag was converted
+     */
+    private static boolean convert(String text, int start, int end, StringBuilder out) {
+        boolean converted = false;
+        int copyFrom = start;
+
+        // position since which there is no closing tag of given type
+        int[] closingMisses = null;
+
+        int i = indexOf(text, '[', start, end);
+        while (i != -1) {
+            int[] match = null;
+            Tag tag = null;
+
+            for (Tag t : TAGS) {
+                if (!startsWithTag(text, i, end, t, false))
+                    continue;
+
+                if (closingMisses == null) {
+                    closingMisses = new int[TAGS.length];
+                    for (int j = 0; j < closingMisses.length; j++)
+                        closingMisses[j] = Integer.MAX_VALUE;
+                }
+
+                match = matchTag(text, i, end, t, closingMisses);
+                tag = t;
+                break;
+            }
+
+            if (match == null) {
+                i = indexOf(text, '[', i + 1, end);
+                continue;
+            }
+
+            out.append(text, copyFrom, i);
+            appendTag(text, tag, match, out);
+            converted = true;
+
+            copyFrom = match[MATCH_END];
+            i = indexOf(text, '[', copyFrom, end);
+        }
+
+        out.append(text, copyFrom, end);
+        return converted;
+    }
+
+    private static void appendTag(String text, Tag tag, int[] match, StringBuilder out) {
+        switch (tag) {
+            case ALIGN:
+                out.append("<div align='");
+                convert(text, match[VALUE_START], match[VALUE_END], out);
+                out.append("'>");
+                convert(text, match[CONTENT_START], match[CONTENT_END], out);
+                out.append("</div>");
+                break;
+            case COLOR:
+                out.append("<font color='");
+                convert(text, match[VALUE_START], match[VALUE_END], out);
+                out.append("'>");
+                convert(text, match[CONTENT_START], match[CONTENT_END], out);
+                out.append("</font>");
+                break;
+            case SIZE:
+                out.append("<font size='");
+                convert(text, match[VALUE_START], match[VALUE_END], out);
+                out.append("'>");
+                convert(text, match[CONTENT_START], match[CONTENT_END], out);
+                out.append("</font>");
+                break;
+            case IMG:
+                out.append("<img width='");
+                convert(text, match[VALUE_START], match[VALUE_END], out);
+                out.append("' height='");
+                convert(text, match[VALUE2_START], match[VALUE2_END], out);
+                out.append("' src='");
+                convert(text, match[CONTENT_START], match[CONTENT_END], out);
+                out.append("' />");
+                break;
+            case EMAIL:
+                out.append("<a href='mailto:");
+                convert(text, match[VALUE_START], match[VALUE_END], out);
+                out.append("'>");
+                convert(text, match[CONTENT_START], match[CONTENT_END], out);
+                out.append("</a>");
+                break;
+            case URL:
+                out.append("<a href='");
+                convert(text, match[VALUE_START], match[VALUE_END], out);
+                out.append("'>");
+                convert(text, match[CONTENT_START], match[CONTENT_END], out);
+                out.append("</a>");
+                break;
+        }
+    }
+
+    /**
+     * Match a tag starting at the position. Values and content must be at least one character
+     * long and the closing tag must have a value.
+     *
+     * @return positions of the match or null if the tag is not complete
+     */
+    private static int[] matchTag(String text, int position, int end, Tag tag, int[] closingMisses) {
+        int valueStart = position + tag.name.length() + 2;
+        int valueEnd;
+        int value2Start = -1;
+        int value2End = -1;
+
+        if (tag == Tag.IMG) {
+            valueEnd = indexOf(text, ',', valueStart + 1, end);
+            if (valueEnd == -1)
+                return null;
+
+            value2Start = valueEnd + 1;
+            value2End = indexOf(text, ']', value2Start + 1, end);
+            if (value2End == -1)
+                return null;
+        } else {
+            valueEnd = indexOf(text, ']', valueStart + 1, end);
+            if (valueEnd == -1)
+                return null;
+        }
+
+        int contentStart = (tag == Tag.IMG ? value2End : valueEnd) + 1;
+
+        // content ends with the first closing tag with a value
+        int from = contentStart + 1;
+        while (from < closingMisses[tag.ordinal()]) {
+            int closing = indexOf(text, '[', from, end);
+            if (closing == -1)
+                break;
+
+            if (startsWithTag(text, closing, end, tag, true)) {
+                int closingValueStart = closing + tag.name.length() + 3;
+                int closingEnd = indexOf(text, ']', closingValueStart, end);
+                if (closingEnd == -1)
+                    break;
+
+                if (closingEnd > closingValueStart) {
+                    return new int[]{
+                            valueStart, valueEnd,
+                            value2Start, value2End,
+                            contentStart, closing,
+                            closingEnd + 1
+                    };
+                }
+            }
 
-        for (Map.Entry<Pattern, String> entry : BBCODE_MAP.entrySet()) {
-            html = entry.getKey().matcher(html).replaceAll(entry.getValue());
+            from = closing + 1;
         }
 
-        return html;
+        closingMisses[tag.ordinal()] = Math.min(closingMisses[tag.ordinal()], contentStart + 1);
+        return null;
+    }
+
+    /**
+     * Returns true if there is <code>[tag=</code> (or <code>[/tag=</code>) at the position.
+     * Tag names are compared case insensitive for ASCII letters only.
+     */
+    private static boolean startsWithTag(String text, int position, int end, Tag tag, boolean closing) {
+        int i = position + 1;
+        if (closing) {
+            if (i >= end || text.charAt(i) != '/')
+                return false;
+            i++;
+        }
+
+        String name = tag.name;
+        if (i + name.length() >= end)
+            return false;
+
+        for (int j = 0; j < name.length(); j++) {
+            char c = text.charAt(i + j);
+            if (c >= 'A' && c <= 'Z')
+                c += 'a' - 'A';
+
+            if (c != name.charAt(j))
+                return false;
+        }
+
+        return text.charAt(i + name.length()) == '=';
+    }
+
+    private static int indexOf(String text, char ch, int from, int end) {
+        for (int i = from; i < end; i++) {
+            if (text.charAt(i) == ch)
+                return i;
+        }
+        return -1;
     }
 }
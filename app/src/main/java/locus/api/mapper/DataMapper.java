@@ -1,12 +1,16 @@
 package locus.api.mapper;
 
 import android.content.Context;
+import android.content.SharedPreferences;
+import android.preference.PreferenceManager;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
 import com.arcao.geocaching.api.data.Geocache;
 import com.arcao.geocaching.api.data.GeocacheLog;
 import com.arcao.geocaching.api.data.Trackable;
+import com.arcao.geocaching4locus.R;
+import com.arcao.geocaching4locus.base.constants.PrefConstants;
 
 import org.apache.commons.collections4.CollectionUtils;
 
@@ -14,25 +18,105 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import locus.api.objects.extra.Waypoint;
 
 final public class DataMapper {
+    private static final int PARALLELISM = Runtime.getRuntime().availableProcessors();
+    private static final int MIN_CHUNK_SIZE = 5;
+    private static final int KEEP_ALIVE = 10; // in sec
+
+    private static ExecutorService convertExecutor;
+
     private final GeocacheConverter geocacheConverter;
     private final GeocacheLogConverter geocacheLogConverter;
     private final TrackableConverter trackableConverter;
 
     public DataMapper(@NonNull Context context) {
-        geocacheConverter = new GeocacheConverter(context);
+        SharedPreferences preferences = PreferenceManager.getDefaultSharedPreferences(context.getApplicationContext());
+
+        geocacheConverter = new GeocacheConverter(
+                context.getString(R.string.var_final_location_name),
+                context.getString(R.string.var_user_waypoint_name),
+                preferences.getBoolean(PrefConstants.DOWNLOADING_DISABLE_DNF_NM_NA_CACHES, false),
+                preferences.getInt(PrefConstants.DOWNLOADING_DISABLE_DNF_NM_NA_CACHES_LOGS_COUNT, 1)
+        );
         geocacheLogConverter = geocacheConverter.getGeocacheLogConverter();
         trackableConverter = geocacheConverter.getTrackableConverter();
     }
 
+    /**
+     * Convert geocaches to Locus waypoints in the same order. Larger lists are split to chunks
+     * converted in parallel by a pool sized to the count of CPU cores.
+     *
+     * @throws CancellationException if the calling thread was interrupted
+     */
     @NonNull
     public List<Waypoint> createLocusWaypoints(@Nullable Collection<Geocache> geocaches) {
         if (CollectionUtils.isEmpty(geocaches))
             return Collections.emptyList();
 
+        int chunks = Math.min(PARALLELISM, geocaches.size() / MIN_CHUNK_SIZE);
+        if (chunks <= 1)
+            return convert(geocaches);
+
+        List<Geocache> geocacheList = geocaches instanceof List ? (List<Geocache>) geocaches : new ArrayList<>(geocaches);
+        int chunkSize = (geocacheList.size() + chunks - 1) / chunks;
+
+        List<Future<List<Waypoint>>> futures = new ArrayList<>(chunks);
+        for (int start = 0; start < geocacheList.size(); start += chunkSize) {
+            final List<Geocache> chunk = geocacheList.subList(start, Math.min(start + chunkSize, geocacheList.size()));
+            futures.add(getConvertExecutor().submit(() -> convert(chunk)));
+        }
+
+        List<Waypoint> points = new ArrayList<>(geocacheList.size());
+        try {
+            for (Future<List<Waypoint>> future : futures)
+                points.addAll(future.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Conversion was interrupted.");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+            throw new IllegalStateException(cause);
+        } finally {
+            for (Future<List<Waypoint>> future : futures)
+                future.cancel(false);
+        }
+
+        return points;
+    }
+
+    /**
+     * Convert geocaches to Locus waypoints with only data needed to show them on the map.
+     */
+    @NonNull
+    public List<Waypoint> createLocusMarkers(@Nullable Collection<Geocache> geocaches) {
+        if (CollectionUtils.isEmpty(geocaches))
+            return Collections.emptyList();
+
+        List<Waypoint> points = new ArrayList<>(geocaches.size());
+        for (Geocache cache : geocaches) {
+            CollectionUtils.addIgnoreNull(points, geocacheConverter.createLocusMarker(cache));
+        }
+
+        return points;
+    }
+
+    @NonNull
+    private List<Waypoint> convert(@NonNull Collection<Geocache> geocaches) {
         List<Waypoint> points = new ArrayList<>(geocaches.size());
         for (Geocache cache : geocaches) {
             CollectionUtils.addIgnoreNull(points, createLocusWaypoint(cache));
@@ -41,6 +125,21 @@ final public class DataMapper {
         return points;
     }
 
+    private static synchronized ExecutorService getConvertExecutor() {
+        if (convertExecutor == null) {
+            AtomicInteger count = new AtomicInteger(1);
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(PARALLELISM, PARALLELISM, KEEP_ALIVE, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), r -> {
+                Thread thread = new Thread(r, "DataMapper #" + count.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            });
+            executor.allowCoreThreadTimeOut(true);
+            convertExecutor = executor;
+        }
+        return convertExecutor;
+    }
+
     @Nullable
     public Waypoint createLocusWaypoint(@NonNull Geocache geocache) {
         return geocacheConverter.createLocusWaypoint(geocache);
@@ -1,8 +1,5 @@
 package locus.api.mapper;
 
-import android.content.Context;
-import android.content.SharedPreferences;
-import android.preference.PreferenceManager;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
@@ -12,56 +9,49 @@ import com.arcao.geocaching.api.data.UserWaypoint;
 import com.arcao.geocaching.api.data.coordinates.Coordinates;
 import com.arcao.geocaching.api.data.coordinates.CoordinatesParser;
 import com.arcao.geocaching.api.data.type.AttributeType;
-import com.arcao.geocaching.api.data.type.ContainerType;
-import com.arcao.geocaching.api.data.type.GeocacheType;
 import com.arcao.geocaching.api.data.type.WaypointType;
 import com.arcao.geocaching.api.util.GeocachingUtils;
-import com.arcao.geocaching4locus.R;
-import com.arcao.geocaching4locus.base.constants.PrefConstants;
 
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
 
-import java.text.DateFormat;
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
-import java.util.Locale;
-import java.util.TimeZone;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import locus.api.objects.extra.Location;
 import locus.api.objects.extra.Waypoint;
-import locus.api.objects.geocaching.GeocachingAttribute;
 import locus.api.objects.geocaching.GeocachingData;
 import timber.log.Timber;
 
 import static locus.api.mapper.Util.applyUnavailabilityForGeocache;
 import static locus.api.mapper.Util.safeDateLong;
 
+/**
+ * Converts geocaches to Locus waypoints. The converter holds no mutable state except
+ * the thread safe {@link InternPool}, so it can be used by more threads at once.
+ */
 final class GeocacheConverter {
     private static final String GEOCACHE_GUID_LINK_PREFIX = "http://www.geocaching.com/seek/cache_details.aspx?guid=";
     private static final long WAYPOINT_BASE_ID = GeocachingUtils.base31Decode("N0");
 
-    private static final DateFormat
-            GPX_TIME_FMT = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.US);
     private static final Pattern
             FINAL_WAYPOINT_NAME_PATTERN = Pattern.compile("fin[a|á]+[l|ł]", Pattern.CASE_INSENSITIVE);
 
     private static final Pattern NOTE__COORDINATE_PATTERN = Pattern.compile("\\b[nNsS]\\s*\\d"); // begin of coordinates
     private static final Pattern NOTE__NAME_PATTERN = Pattern.compile("^(.+):\\s*\\z");
-
-    static {
-        GPX_TIME_FMT.setTimeZone(TimeZone.getTimeZone("GMT+00:00"));
-    }
+    // coordinates are much shorter, eg. "N 49° 56.123' E 014° 12.123'", even split to two lines
+    private static final int NOTE__COORDINATE_MAX_LENGTH = 100;
 
 
-    private final Context context;
+    private final String finalLocationName;
+    private final String userWaypointNameFormat;
 
+    private final InternPool internPool;
     private final ImageDataConverter imageDataConverter;
     private final GeocacheLogConverter geocacheLogConverter;
     private final TrackableConverter trackableConverter;
@@ -69,17 +59,18 @@ final class GeocacheConverter {
     private final boolean disableDnfNmNaGeocaches;
     private final int disableDnfNmNaGeocachesThreshold;
 
-    GeocacheConverter(@NonNull Context context) {
-        this.context = context.getApplicationContext();
-
-        SharedPreferences preferences = PreferenceManager.getDefaultSharedPreferences(context.getApplicationContext());
-        disableDnfNmNaGeocaches = preferences.getBoolean(PrefConstants.DOWNLOADING_DISABLE_DNF_NM_NA_CACHES, false);
-        disableDnfNmNaGeocachesThreshold = preferences.getInt(PrefConstants.DOWNLOADING_DISABLE_DNF_NM_NA_CACHES_LOGS_COUNT, 1);
-
-        imageDataConverter = new ImageDataConverter();
-        geocacheLogConverter = new GeocacheLogConverter(imageDataConverter);
-        trackableConverter = new TrackableConverter();
-        waypointConverter = new WaypointConverter();
+    GeocacheConverter(@NonNull String finalLocationName, @NonNull String userWaypointNameFormat,
+                      boolean disableDnfNmNaGeocaches, int disableDnfNmNaGeocachesThreshold) {
+        this.finalLocationName = finalLocationName;
+        this.userWaypointNameFormat = userWaypointNameFormat;
+        this.disableDnfNmNaGeocaches = disableDnfNmNaGeocaches;
+        this.disableDnfNmNaGeocachesThreshold = disableDnfNmNaGeocachesThreshold;
+
+        internPool = new InternPool();
+        imageDataConverter = new ImageDataConverter(internPool);
+        geocacheLogConverter = new GeocacheLogConverter(imageDataConverter, internPool);
+        trackableConverter = new TrackableConverter(internPool);
+        waypointConverter = new WaypointConverter(internPool);
     }
 
     GeocacheLogConverter getGeocacheLogConverter() {
@@ -105,13 +96,13 @@ final class GeocacheConverter {
         d.setCacheID(cache.code());
         d.setId(cache.id());
         d.setName(cache.name());
-        d.setType(getLocusCacheType(cache.geocacheType()));
+        d.setType(TypeMapper.toLocusCacheType(cache.geocacheType()));
         d.setDifficulty(cache.difficulty());
         d.setTerrain(cache.terrain());
         if (cache.owner() != null) {
-            d.setOwner(cache.owner().userName());
+            d.setOwner(internPool.intern(cache.owner().userName()));
         }
-        d.setPlacedBy(cache.placedBy());
+        d.setPlacedBy(internPool.intern(cache.placedBy()));
         d.setAvailable(cache.available());
         d.setArchived(cache.archived());
         d.setPremiumOnly(cache.premium());
@@ -123,11 +114,11 @@ final class GeocacheConverter {
         d.setDatePublished(safeDateLong(cache.publishDate()));
         d.setDateUpdated(safeDateLong(cache.lastUpdateDate()));
 
-        d.setContainer(getLocusContainerType(cache.containerType()));
+        d.setContainer(TypeMapper.toLocusContainerType(cache.containerType()));
         d.setFound(cache.foundByUser());
 
-        d.setCountry(cache.countryName());
-        d.setState(cache.stateName());
+        d.setCountry(internPool.intern(cache.countryName()));
+        d.setState(internPool.intern(cache.stateName()));
 
         d.setDescriptions(BadBBCodeFixer.fix(cache.shortDescription()), cache.shortDescriptionHtml(),
                 BadBBCodeFixer.fix(cache.longDescription()), cache.longDescriptionHtml());
@@ -144,7 +135,7 @@ final class GeocacheConverter {
             if (attribute == null)
                 continue;
 
-            d.attributes.add(new GeocachingAttribute(attribute.id, attribute.on));
+            d.attributes.add(internPool.attribute(attribute.id, attribute.on));
         }
 
         p.gcData = d;
@@ -163,76 +154,41 @@ final class GeocacheConverter {
         return p;
     }
 
-    private int getLocusCacheType(@Nullable GeocacheType cacheType) {
-        if (cacheType == null)
-            return GeocachingData.CACHE_TYPE_UNDEFINED;
-
-        switch (cacheType) {
-            case CacheInTrashOutEvent:
-                return GeocachingData.CACHE_TYPE_CACHE_IN_TRASH_OUT;
-            case Earth:
-                return GeocachingData.CACHE_TYPE_EARTH;
-            case Event:
-                return GeocachingData.CACHE_TYPE_EVENT;
-            case GpsAdventuresExhibit:
-                return GeocachingData.CACHE_TYPE_GPS_ADVENTURE;
-            case GroundspeakBlockParty:
-                return GeocachingData.CACHE_TYPE_GROUNDSPEAK;
-            case GroudspeakHQ:
-                return GeocachingData.CACHE_TYPE_GROUNDSPEAK;
-            case GroudspeakLostAndFoundCelebration:
-                return GeocachingData.CACHE_TYPE_LF_CELEBRATION;
-            case LetterboxHybrid:
-                return GeocachingData.CACHE_TYPE_LETTERBOX;
-            case Locationless:
-                return GeocachingData.CACHE_TYPE_LOCATIONLESS;
-            case LostAndFoundEvent:
-                return GeocachingData.CACHE_TYPE_LF_EVENT;
-            case MegaEvent:
-                return GeocachingData.CACHE_TYPE_MEGA_EVENT;
-            case Multi:
-                return GeocachingData.CACHE_TYPE_MULTI;
-            case ProjectApe:
-                return GeocachingData.CACHE_TYPE_PROJECT_APE;
-            case Traditional:
-                return GeocachingData.CACHE_TYPE_TRADITIONAL;
-            case Mystery:
-                return GeocachingData.CACHE_TYPE_MYSTERY;
-            case Virtual:
-                return GeocachingData.CACHE_TYPE_VIRTUAL;
-            case Webcam:
-                return GeocachingData.CACHE_TYPE_WEBCAM;
-            case Wherigo:
-                return GeocachingData.CACHE_TYPE_WHERIGO;
-            case GigaEvent:
-                return GeocachingData.CACHE_TYPE_GIGA_EVENT;
-            default:
-                return GeocachingData.CACHE_TYPE_MYSTERY;
-        }
-    }
+    /**
+     * Create a waypoint with only data needed to show the geocache on the map. Full data are
+     * downloaded later by UpdateActivity when the waypoint is opened in Locus.
+     */
+    @Nullable
+    Waypoint createLocusMarker(@Nullable Geocache cache) {
+        if (cache == null)
+            return null;
 
-    private int getLocusContainerType(@Nullable ContainerType containerType) {
-        if (containerType == null)
-            return GeocachingData.CACHE_SIZE_NOT_CHOSEN;
-
-        switch (containerType) {
-            case Huge:
-                return GeocachingData.CACHE_SIZE_HUGE;
-            case Large:
-                return GeocachingData.CACHE_SIZE_LARGE;
-            case Micro:
-                return GeocachingData.CACHE_SIZE_MICRO;
-            case NotChosen:
-                return GeocachingData.CACHE_SIZE_NOT_CHOSEN;
-            case Other:
-                return GeocachingData.CACHE_SIZE_OTHER;
-            case Regular:
-                return GeocachingData.CACHE_SIZE_REGULAR;
-            case Small:
-                return GeocachingData.CACHE_SIZE_SMALL;
-            default:
-                return GeocachingData.CACHE_SIZE_NOT_CHOSEN;
-        }
+        Location loc = new Location(cache.code());
+        loc.setLatitude(cache.coordinates().latitude());
+        loc.setLongitude(cache.coordinates().longitude());
+
+        Waypoint p = new Waypoint(cache.name(), loc);
+
+        GeocachingData d = new GeocachingData();
+        d.setCacheID(cache.code());
+        d.setId(cache.id());
+        d.setName(cache.name());
+        d.setType(TypeMapper.toLocusCacheType(cache.geocacheType()));
+        d.setContainer(TypeMapper.toLocusContainerType(cache.containerType()));
+        d.setDifficulty(cache.difficulty());
+        d.setTerrain(cache.terrain());
+        d.setAvailable(cache.available());
+        d.setArchived(cache.archived());
+        d.setFound(cache.foundByUser());
+        d.setPremiumOnly(cache.premium());
+        d.setEncodedHints(cache.hint());
+
+        p.gcData = d;
+
+        // the marker must be shown at the same place as the full geocache
+        updateGeocacheLocationByCorrectedCoordinates(p, cache.userWaypoints());
+
+        return p;
     }
 
     private void updateGeocacheLocationByCorrectedCoordinates(@NonNull Waypoint p, @Nullable Collection<UserWaypoint> userWaypoints) {
@@ -259,11 +215,9 @@ final class GeocacheConverter {
         p.gcData.setLatOriginal(location.getLatitude());
         p.gcData.setLonOriginal(location.getLongitude());
 
-        // update coordinates to new location
-        Location newLocation = new Location(location.getProvider());
-        newLocation.setLatitude(correctedCoordinateUserWaypoint.coordinates().latitude());
-        newLocation.setLongitude(correctedCoordinateUserWaypoint.coordinates().longitude());
-        location.set(newLocation);
+        // update coordinates of the location, only coordinates were set by the conversion
+        location.setLatitude(correctedCoordinateUserWaypoint.coordinates().latitude());
+        location.setLongitude(correctedCoordinateUserWaypoint.coordinates().longitude());
     }
 
     @Nullable
@@ -277,7 +231,7 @@ final class GeocacheConverter {
         for (UserWaypoint uw : userWaypoints) {
             if (uw.correctedCoordinate()) {
 
-                final String name = context.getString(R.string.var_final_location_name);
+                final String name = finalLocationName;
                 final String waypointCode = GeocachingUtils.base31Encode(WAYPOINT_BASE_ID) + cacheCode.substring(2);
 
                 return com.arcao.geocaching.api.data.Waypoint.builder()
@@ -306,20 +260,24 @@ final class GeocacheConverter {
 
         int count = 0;
         int nameCount = 0;
-        StringBuilder namePrefix = new StringBuilder();
+        // start of the text used for a name, it can span over unparsable coordinates, eg. "S1: N 49 ..."
+        int nameStart = 0;
 
+        // the note is walked once, a region is used instead of cutting the note after each match
         Matcher matcher = NOTE__COORDINATE_PATTERN.matcher(note);
-        while (matcher.find()) {
+        int regionStart = 0;
+        while (regionStart < note.length() && matcher.region(regionStart, note.length()).find()) {
+            final int start = matcher.start();
+
             try {
-                final Coordinates point = CoordinatesParser.parse(note.substring(matcher.start()));
+                // parse only a window of the note, the parser would copy the rest of it for each match
+                final Coordinates point = CoordinatesParser.parse(
+                        note.substring(start, Math.min(start + NOTE__COORDINATE_MAX_LENGTH, note.length())));
                 count++;
 
-                String name = namePrefix + note.substring(0, matcher.start());
-
                 // name can contains more lines, use the last one for name only
-                int lastLineEnd = name.lastIndexOf('\n');
-                if (lastLineEnd != -1)
-                    name = name.substring(lastLineEnd + 1);
+                int lastLineEnd = lastIndexOf(note, '\n', nameStart, start);
+                String name = note.substring(lastLineEnd != -1 ? lastLineEnd + 1 : nameStart, start);
 
                 Matcher nameMatcher = NOTE__NAME_PATTERN.matcher(name);
 
@@ -333,7 +291,7 @@ final class GeocacheConverter {
                     }
                 } else {
                     nameCount++;
-                    name = context.getString(R.string.var_user_waypoint_name, nameCount);
+                    name = String.format(userWaypointNameFormat, nameCount);
                 }
 
                 final String code = GeocachingUtils.base31Encode(WAYPOINT_BASE_ID + count) + cacheCode.substring(2);
@@ -347,19 +305,22 @@ final class GeocacheConverter {
                         .waypointType(waypointType)
                         .build());
 
-                namePrefix.setLength(0);
+                nameStart = start + 1;
             } catch (ParseException e) {
                 Timber.w(e);
-
-                // fix for "S1: N 49 ..."
-                namePrefix.append(note.substring(0, matcher.start() + 1));
             }
 
-            note = note.substring(matcher.start() + 1);
-            matcher = NOTE__COORDINATE_PATTERN.matcher(note);
+            regionStart = start + 1;
         }
 
         return res;
     }
 
+    private static int lastIndexOf(String text, char ch, int start, int end) {
+        for (int i = end - 1; i >= start; i--) {
+            if (text.charAt(i) == ch)
+                return i;
+        }
+        return -1;
+    }
 }
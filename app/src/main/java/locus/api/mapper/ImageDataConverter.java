@@ -7,13 +7,19 @@ import com.arcao.geocaching.api.data.ImageData;
 import locus.api.objects.geocaching.GeocachingImage;
 
 final class ImageDataConverter {
+    private final InternPool internPool;
+
+    ImageDataConverter(InternPool internPool) {
+        this.internPool = internPool;
+    }
+
     @Nullable
     GeocachingImage createLocusGeocachingImage(@Nullable ImageData imageData) {
         if (imageData == null)
             return null;
 
         GeocachingImage image = new GeocachingImage();
-        image.setName(imageData.name());
+        image.setName(internPool.intern(imageData.name()));
         image.setDescription(imageData.description());
         image.setThumbUrl(imageData.thumbUrl());
         image.setUrl(imageData.url());
@@ -0,0 +1,59 @@
+package locus.api.mapper;
+
+import android.support.annotation.Nullable;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import locus.api.objects.geocaching.GeocachingAttribute;
+
+/**
+ * Shares instances of values repeated in many converted geocaches, like user names, country
+ * names or icon paths, so each value is held in the memory only once. The pool lives as long as
+ * the {@link GeocacheConverter} (and its {@link DataMapper}) which created it. It's cleared when it grows over {@link #MAX_SIZE},
+ * so a long living mapper doesn't keep all values forever.
+ * <p>
+ * The pool can be used by more threads at once.
+ */
+final class InternPool {
+    private static final int MAX_SIZE = 4096;
+
+    private final ConcurrentHashMap<String, String> strings = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, GeocachingAttribute> attributes = new ConcurrentHashMap<>();
+
+    /**
+     * Returns a pooled instance of the string equal to the given one.
+     */
+    @Nullable
+    String intern(@Nullable String value) {
+        if (value == null || value.isEmpty())
+            return value;
+
+        String pooled = strings.get(value);
+        if (pooled != null)
+            return pooled;
+
+        if (strings.size() >= MAX_SIZE)
+            strings.clear();
+
+        pooled = strings.putIfAbsent(value, value);
+        return pooled != null ? pooled : value;
+    }
+
+    /**
+     * Returns a shared attribute. Attributes are never modified after the conversion, so one
+     * instance can be added to more geocaches.
+     */
+    GeocachingAttribute attribute(int id, boolean on) {
+        Integer key = on ? id : -id;
+
+        GeocachingAttribute attribute = attributes.get(key);
+        if (attribute == null) {
+            attribute = new GeocachingAttribute(id, on);
+            GeocachingAttribute pooled = attributes.putIfAbsent(key, attribute);
+            if (pooled != null)
+                attribute = pooled;
+        }
+
+        return attribute;
+    }
+}
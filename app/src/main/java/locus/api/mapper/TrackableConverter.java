@@ -16,6 +16,12 @@ import locus.api.objects.geocaching.GeocachingTrackable;
 import static locus.api.mapper.Util.safeDateLong;
 
 final class TrackableConverter {
+    private final InternPool internPool;
+
+    TrackableConverter(InternPool internPool) {
+        this.internPool = internPool;
+    }
+
     void addTrackables(@NonNull Waypoint waypoint, @Nullable Collection<Trackable> trackables) {
         if (waypoint.gcData == null || CollectionUtils.isEmpty(trackables))
             return;
@@ -33,15 +39,15 @@ final class TrackableConverter {
 
         GeocachingTrackable t = new GeocachingTrackable();
         t.setId(trackable.id());
-        t.setImgUrl(trackable.trackableTypeImage());
+        t.setImgUrl(internPool.intern(trackable.trackableTypeImage()));
         t.setName(trackable.name());
         User currentOwner = trackable.currentOwner();
         if (currentOwner != null) {
-            t.setCurrentOwner(currentOwner.userName());
+            t.setCurrentOwner(internPool.intern(currentOwner.userName()));
         }
         User owner = trackable.owner();
         if (owner != null) {
-            t.setOriginalOwner(owner.userName());
+            t.setOriginalOwner(internPool.intern(owner.userName()));
         }
         t.setSrcDetails(trackable.trackableUrl());
         t.setReleased(safeDateLong(trackable.created()));
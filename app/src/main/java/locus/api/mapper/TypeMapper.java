@@ -0,0 +1,170 @@
+package locus.api.mapper;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.arcao.geocaching.api.data.type.ContainerType;
+import com.arcao.geocaching.api.data.type.GeocacheLogType;
+import com.arcao.geocaching.api.data.type.GeocacheType;
+import com.arcao.geocaching.api.data.type.WaypointType;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import locus.api.objects.geocaching.GeocachingData;
+import locus.api.objects.geocaching.GeocachingLog;
+import locus.api.objects.geocaching.GeocachingWaypoint;
+
+/**
+ * Maps types of Geocaching API to Locus types and back. Forward mappings are arrays indexed by
+ * an ordinal of the Geocaching API enum, so a conversion of each geocache, log and waypoint is
+ * a single array access. Reverse mappings return the first Geocaching API type registered for
+ * a Locus type, eg. both Groundspeak HQ and Block Party are Locus Groundspeak type.
+ */
+final class TypeMapper {
+    private static final int[] CACHE_TYPES = new int[GeocacheType.values().length];
+    private static final Map<Integer, GeocacheType> LOCUS_CACHE_TYPES = new HashMap<>();
+
+    private static final int[] CONTAINER_TYPES = new int[ContainerType.values().length];
+    private static final Map<Integer, ContainerType> LOCUS_CONTAINER_TYPES = new HashMap<>();
+
+    private static final int[] LOG_TYPES = new int[GeocacheLogType.values().length];
+    private static final Map<Integer, GeocacheLogType> LOCUS_LOG_TYPES = new HashMap<>();
+
+    private static final String[] WAYPOINT_TYPES = new String[WaypointType.values().length];
+    private static final Map<String, WaypointType> LOCUS_WAYPOINT_TYPES = new HashMap<>();
+
+    static {
+        // unknown types
+        Arrays.fill(CACHE_TYPES, GeocachingData.CACHE_TYPE_MYSTERY);
+        Arrays.fill(CONTAINER_TYPES, GeocachingData.CACHE_SIZE_NOT_CHOSEN);
+        Arrays.fill(LOG_TYPES, GeocachingLog.CACHE_LOG_TYPE_UNKNOWN);
+        Arrays.fill(WAYPOINT_TYPES, GeocachingWaypoint.CACHE_WAYPOINT_TYPE_REFERENCE);
+
+        addCacheType(GeocacheType.Traditional, GeocachingData.CACHE_TYPE_TRADITIONAL);
+        addCacheType(GeocacheType.Multi, GeocachingData.CACHE_TYPE_MULTI);
+        addCacheType(GeocacheType.Mystery, GeocachingData.CACHE_TYPE_MYSTERY);
+        addCacheType(GeocacheType.Virtual, GeocachingData.CACHE_TYPE_VIRTUAL);
+        addCacheType(GeocacheType.Earth, GeocachingData.CACHE_TYPE_EARTH);
+        addCacheType(GeocacheType.ProjectApe, GeocachingData.CACHE_TYPE_PROJECT_APE);
+        addCacheType(GeocacheType.LetterboxHybrid, GeocachingData.CACHE_TYPE_LETTERBOX);
+        addCacheType(GeocacheType.Wherigo, GeocachingData.CACHE_TYPE_WHERIGO);
+        addCacheType(GeocacheType.Event, GeocachingData.CACHE_TYPE_EVENT);
+        addCacheType(GeocacheType.MegaEvent, GeocachingData.CACHE_TYPE_MEGA_EVENT);
+        addCacheType(GeocacheType.GigaEvent, GeocachingData.CACHE_TYPE_GIGA_EVENT);
+        addCacheType(GeocacheType.CacheInTrashOutEvent, GeocachingData.CACHE_TYPE_CACHE_IN_TRASH_OUT);
+        addCacheType(GeocacheType.GpsAdventuresExhibit, GeocachingData.CACHE_TYPE_GPS_ADVENTURE);
+        addCacheType(GeocacheType.Webcam, GeocachingData.CACHE_TYPE_WEBCAM);
+        addCacheType(GeocacheType.Locationless, GeocachingData.CACHE_TYPE_LOCATIONLESS);
+        addCacheType(GeocacheType.GroudspeakHQ, GeocachingData.CACHE_TYPE_GROUNDSPEAK);
+        addCacheType(GeocacheType.GroundspeakBlockParty, GeocachingData.CACHE_TYPE_GROUNDSPEAK);
+        addCacheType(GeocacheType.GroudspeakLostAndFoundCelebration, GeocachingData.CACHE_TYPE_LF_CELEBRATION);
+        addCacheType(GeocacheType.LostAndFoundEvent, GeocachingData.CACHE_TYPE_LF_EVENT);
+
+        addContainerType(ContainerType.NotChosen, GeocachingData.CACHE_SIZE_NOT_CHOSEN);
+        addContainerType(ContainerType.Micro, GeocachingData.CACHE_SIZE_MICRO);
+        addContainerType(ContainerType.Small, GeocachingData.CACHE_SIZE_SMALL);
+        addContainerType(ContainerType.Regular, GeocachingData.CACHE_SIZE_REGULAR);
+        addContainerType(ContainerType.Large, GeocachingData.CACHE_SIZE_LARGE);
+        addContainerType(ContainerType.Huge, GeocachingData.CACHE_SIZE_HUGE);
+        addContainerType(ContainerType.Other, GeocachingData.CACHE_SIZE_OTHER);
+
+        addLogType(GeocacheLogType.Unknown, GeocachingLog.CACHE_LOG_TYPE_UNKNOWN);
+        addLogType(GeocacheLogType.FoundIt, GeocachingLog.CACHE_LOG_TYPE_FOUND);
+        addLogType(GeocacheLogType.DidntFindIt, GeocachingLog.CACHE_LOG_TYPE_NOT_FOUND);
+        addLogType(GeocacheLogType.WriteNote, GeocachingLog.CACHE_LOG_TYPE_WRITE_NOTE);
+        addLogType(GeocacheLogType.Announcement, GeocachingLog.CACHE_LOG_TYPE_ANNOUNCEMENT);
+        addLogType(GeocacheLogType.Attended, GeocachingLog.CACHE_LOG_TYPE_ATTENDED);
+        addLogType(GeocacheLogType.WillAttend, GeocachingLog.CACHE_LOG_TYPE_WILL_ATTEND);
+        addLogType(GeocacheLogType.WebcamPhotoTaken, GeocachingLog.CACHE_LOG_TYPE_WEBCAM_PHOTO_TAKEN);
+        addLogType(GeocacheLogType.EnableListing, GeocachingLog.CACHE_LOG_TYPE_ENABLE_LISTING);
+        addLogType(GeocacheLogType.TemporarilyDisableListing, GeocachingLog.CACHE_LOG_TYPE_TEMPORARILY_DISABLE_LISTING);
+        addLogType(GeocacheLogType.NeedsArchived, GeocachingLog.CACHE_LOG_TYPE_NEEDS_ARCHIVED);
+        addLogType(GeocacheLogType.NeedsMaintenance, GeocachingLog.CACHE_LOG_TYPE_NEEDS_MAINTENANCE);
+        addLogType(GeocacheLogType.OwnerMaintenance, GeocachingLog.CACHE_LOG_TYPE_OWNER_MAINTENANCE);
+        addLogType(GeocacheLogType.UpdateCoordinates, GeocachingLog.CACHE_LOG_TYPE_UPDATE_COORDINATES);
+        addLogType(GeocacheLogType.PostReviewerNote, GeocachingLog.CACHE_LOG_TYPE_POST_REVIEWER_NOTE);
+        addLogType(GeocacheLogType.PublishListing, GeocachingLog.CACHE_LOG_TYPE_PUBLISH_LISTING);
+        addLogType(GeocacheLogType.RetractListing, GeocachingLog.CACHE_LOG_TYPE_RETRACT_LISTING);
+        addLogType(GeocacheLogType.Archive, GeocachingLog.CACHE_LOG_TYPE_ARCHIVE);
+        addLogType(GeocacheLogType.Unarchive, GeocachingLog.CACHE_LOG_TYPE_UNARCHIVE);
+
+        addWaypointType(WaypointType.ReferencePoint, GeocachingWaypoint.CACHE_WAYPOINT_TYPE_REFERENCE);
+        addWaypointType(WaypointType.FinalLocation, GeocachingWaypoint.CACHE_WAYPOINT_TYPE_FINAL);
+        addWaypointType(WaypointType.ParkingArea, GeocachingWaypoint.CACHE_WAYPOINT_TYPE_PARKING);
+        addWaypointType(WaypointType.VirtualStage, GeocachingWaypoint.CACHE_WAYPOINT_TYPE_VIRTUAL_STAGE);
+        addWaypointType(WaypointType.PhysicalStage, GeocachingWaypoint.CACHE_WAYPOINT_TYPE_PHYSICAL_STAGE);
+        addWaypointType(WaypointType.Trailhead, GeocachingWaypoint.CACHE_WAYPOINT_TYPE_TRAILHEAD);
+    }
+
+    private TypeMapper() {
+    }
+
+    static int toLocusCacheType(@Nullable GeocacheType cacheType) {
+        return cacheType != null ? CACHE_TYPES[cacheType.ordinal()] : GeocachingData.CACHE_TYPE_UNDEFINED;
+    }
+
+    static int toLocusContainerType(@Nullable ContainerType containerType) {
+        return containerType != null ? CONTAINER_TYPES[containerType.ordinal()] : GeocachingData.CACHE_SIZE_NOT_CHOSEN;
+    }
+
+    static int toLocusLogType(@Nullable GeocacheLogType logType) {
+        return logType != null ? LOG_TYPES[logType.ordinal()] : GeocachingLog.CACHE_LOG_TYPE_UNKNOWN;
+    }
+
+    @NonNull
+    static String toLocusWaypointType(@Nullable WaypointType waypointType) {
+        return waypointType != null ? WAYPOINT_TYPES[waypointType.ordinal()] : GeocachingWaypoint.CACHE_WAYPOINT_TYPE_REFERENCE;
+    }
+
+    /**
+     * @return Geocaching API type or null for an unknown Locus type
+     */
+    @Nullable
+    static GeocacheType fromLocusCacheType(int locusCacheType) {
+        return LOCUS_CACHE_TYPES.get(locusCacheType);
+    }
+
+    @NonNull
+    static ContainerType fromLocusContainerType(int locusContainerType) {
+        ContainerType containerType = LOCUS_CONTAINER_TYPES.get(locusContainerType);
+        return containerType != null ? containerType : ContainerType.NotChosen;
+    }
+
+    @NonNull
+    static GeocacheLogType fromLocusLogType(int locusLogType) {
+        GeocacheLogType logType = LOCUS_LOG_TYPES.get(locusLogType);
+        return logType != null ? logType : GeocacheLogType.Unknown;
+    }
+
+    @NonNull
+    static WaypointType fromLocusWaypointType(@Nullable String locusWaypointType) {
+        WaypointType waypointType = LOCUS_WAYPOINT_TYPES.get(locusWaypointType);
+        return waypointType != null ? waypointType : WaypointType.ReferencePoint;
+    }
+
+    private static void addCacheType(GeocacheType type, int locusType) {
+        CACHE_TYPES[type.ordinal()] = locusType;
+        if (!LOCUS_CACHE_TYPES.containsKey(locusType))
+            LOCUS_CACHE_TYPES.put(locusType, type);
+    }
+
+    private static void addContainerType(ContainerType type, int locusType) {
+        CONTAINER_TYPES[type.ordinal()] = locusType;
+        if (!LOCUS_CONTAINER_TYPES.containsKey(locusType))
+            LOCUS_CONTAINER_TYPES.put(locusType, type);
+    }
+
+    private static void addLogType(GeocacheLogType type, int locusType) {
+        LOG_TYPES[type.ordinal()] = locusType;
+        if (!LOCUS_LOG_TYPES.containsKey(locusType))
+            LOCUS_LOG_TYPES.put(locusType, type);
+    }
+
+    private static void addWaypointType(WaypointType type, String locusType) {
+        WAYPOINT_TYPES[type.ordinal()] = locusType;
+        if (!LOCUS_WAYPOINT_TYPES.containsKey(locusType))
+            LOCUS_WAYPOINT_TYPES.put(locusType, type);
+    }
+}
@@ -27,9 +27,17 @@ final public class WaypointMerger {
     private final int disableDnfNmNaGeocachesThreshold;
 
     public WaypointMerger(@NonNull Context context) {
-        SharedPreferences preferences = PreferenceManager.getDefaultSharedPreferences(context.getApplicationContext());
-        disableDnfNmNaGeocaches = preferences.getBoolean(PrefConstants.DOWNLOADING_DISABLE_DNF_NM_NA_CACHES, false);
-        disableDnfNmNaGeocachesThreshold = preferences.getInt(PrefConstants.DOWNLOADING_DISABLE_DNF_NM_NA_CACHES_LOGS_COUNT, 1);
+        this(PreferenceManager.getDefaultSharedPreferences(context.getApplicationContext()));
+    }
+
+    private WaypointMerger(@NonNull SharedPreferences preferences) {
+        this(preferences.getBoolean(PrefConstants.DOWNLOADING_DISABLE_DNF_NM_NA_CACHES, false),
+                preferences.getInt(PrefConstants.DOWNLOADING_DISABLE_DNF_NM_NA_CACHES_LOGS_COUNT, 1));
+    }
+
+    public WaypointMerger(boolean disableDnfNmNaGeocaches, int disableDnfNmNaGeocachesThreshold) {
+        this.disableDnfNmNaGeocaches = disableDnfNmNaGeocaches;
+        this.disableDnfNmNaGeocachesThreshold = disableDnfNmNaGeocachesThreshold;
     }
 
     public void mergeWaypoint(@NonNull Waypoint dstWaypoint, @Nullable Waypoint srcWaypoint) {
@@ -64,6 +72,23 @@ final public class WaypointMerger {
         copyGsakGeocachingLogs(dstWaypoint.gcData.logs, originalLogs);
     }
 
+    /**
+     * Refresh a state of the original waypoint from the geocache downloaded in LITE quality, eg.
+     * when the full geocache limit was reached. Descriptions, logs and other full details are kept.
+     */
+    public void mergeLiteWaypoint(@NonNull Waypoint dstWaypoint, @NonNull Waypoint liteWaypoint) {
+        if (dstWaypoint.gcData == null || liteWaypoint.gcData == null)
+            return;
+
+        dstWaypoint.gcData.setAvailable(liteWaypoint.gcData.isAvailable());
+        dstWaypoint.gcData.setArchived(liteWaypoint.gcData.isArchived());
+        dstWaypoint.gcData.setFound(liteWaypoint.gcData.isFound());
+        dstWaypoint.gcData.setFavoritePoints(liteWaypoint.gcData.getFavoritePoints());
+
+        // only when this feature is enabled
+        if (disableDnfNmNaGeocaches) applyUnavailabilityForGeocache(dstWaypoint, disableDnfNmNaGeocachesThreshold);
+    }
+
     // issue #14: Keep cache logs from GSAK when updating cache
     private void copyGsakGeocachingLogs(@NonNull List<GeocachingLog> dstLogs, @NonNull List<GeocachingLog> srcLogs) {
         for (GeocachingLog fromLog : new ReverseListIterator<>(srcLogs)) {
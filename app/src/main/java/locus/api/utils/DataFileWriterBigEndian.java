@@ -1,76 +1,102 @@
 package locus.api.utils;
 
-import java.io.BufferedOutputStream;
+import java.io.Closeable;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 
+/**
+ * Writes data directly to a FileChannel through a reusable direct ByteBuffer. The buffer is a
+ * window of the file starting at <code>bufferStart</code>, so position changes made by Storable
+ * objects to fill their size header usually stay inside the buffer and don't touch the file.
+ * The buffer is written with positional writes only when it's full, when the position leaves
+ * it or when the writer is flushed.
+ */
 class DataFileWriterBigEndian extends DataWriterBigEndian {
-    private long storedPosition;
+    private static final int BUFFER_SIZE = 64 * 1024;
 
-    private final OutputStream out;
+    private final Closeable out;
     private final FileChannel channel;
+    private final ByteBuffer buffer;
+
+    // file position of the first byte in the buffer
+    private long bufferStart;
+    // count of valid bytes in the buffer
+    private int bufferEnd;
+    // size of the data already written to the file
+    private long fileSize;
+    private long storedPosition;
+
+    DataFileWriterBigEndian(FileOutputStream out) throws IOException {
+        this(out.getChannel(), out);
+    }
 
-    DataFileWriterBigEndian(FileOutputStream out) {
+    /**
+     * Create a writer starting at the current position of the channel.
+     *
+     * @param out closed together with the writer
+     */
+    DataFileWriterBigEndian(FileChannel channel, Closeable out) throws IOException {
         super(0);
-        this.out = new BufferedOutputStream(out);
-        channel = out.getChannel();
+        this.out = out;
+        this.channel = channel;
+        buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+        bufferStart = channel.position();
+        fileSize = channel.size();
     }
 
     @Override
     public synchronized void write(int b) {
-        try {
-            out.write(b);
-        } catch (IOException e) {
-            throw new DataFileWriterException(e);
-        }
+        if (!buffer.hasRemaining())
+            flushBuffer();
+
+        buffer.put((byte) b);
+        updateBufferEnd();
     }
 
     @Override
     public synchronized void write(byte[] b, int off, int len) {
-        try {
-            out.write(b, off, len);
-        } catch (IOException e) {
-            throw new DataFileWriterException(e);
+        while (len > 0) {
+            if (!buffer.hasRemaining())
+                flushBuffer();
+
+            int count = Math.min(len, buffer.remaining());
+            buffer.put(b, off, count);
+            updateBufferEnd();
+
+            off += count;
+            len -= count;
         }
     }
 
     @Override
-    public void storePosition() {
-        try {
-            out.flush();
-            storedPosition = channel.position();
-        } catch (IOException e) {
-            throw new DataFileWriterException(e);
-        }
+    public synchronized void storePosition() {
+        storedPosition = getPosition();
     }
 
     @Override
-    public void restorePosition() {
-        try {
-            out.flush();
-            channel.position(storedPosition);
-        } catch (IOException e) {
-            throw new DataFileWriterException(e);
-        }
+    public synchronized void restorePosition() {
+        moveTo((int) storedPosition);
     }
 
     @Override
-    public void moveTo(int index) {
-        try {
-            out.flush();
-
-            // check index
-            if (index < 0 || index > channel.size()) {
-                throw new IllegalArgumentException(
-                        "Invalid move index:" + index + ", count:" + channel.size());
-            }
+    public synchronized void moveTo(int index) {
+        // check index
+        if (index < 0 || index > size()) {
+            throw new IllegalArgumentException(
+                    "Invalid move index:" + index + ", count:" + size());
+        }
 
-            channel.position(index);
-        } catch (IOException e) {
-            throw new DataFileWriterException(e);
+        if (index >= bufferStart && index <= bufferStart + bufferEnd) {
+            buffer.position((int) (index - bufferStart));
+            return;
         }
+
+        flushBuffer();
+        bufferStart = index;
     }
 
     @Override
@@ -85,29 +111,76 @@ class DataFileWriterBigEndian extends DataWriterBigEndian {
 
     @Override
     public synchronized int size() {
-        try {
-            out.flush();
-            return (int) channel.size();
-        } catch (IOException e) {
-            throw new DataFileWriterException(e);
-        }
+        return (int) Math.max(fileSize, bufferStart + bufferEnd);
     }
 
     synchronized int getPosition() {
+        return (int) (bufferStart + buffer.position());
+    }
+
+    /**
+     * Write an int to the given position of the file without changing the current position.
+     */
+    synchronized void writeIntAt(int position, int value) throws IOException {
         try {
-            out.flush();
-            return (int) channel.position();
-        } catch (IOException e) {
-            throw new DataFileWriterException(e);
+            flushBuffer();
+        } catch (DataFileWriterException e) {
+            throw e.getCause();
         }
+
+        ByteBuffer intBuffer = ByteBuffer.allocate(4);
+        intBuffer.putInt(value);
+        intBuffer.flip();
+
+        long writePosition = position;
+        while (intBuffer.hasRemaining())
+            writePosition += channel.write(intBuffer, writePosition);
+
+        fileSize = Math.max(fileSize, writePosition);
     }
 
     synchronized void flush() throws IOException {
-        out.flush();
+        try {
+            flushBuffer();
+        } catch (DataFileWriterException e) {
+            throw e.getCause();
+        }
     }
 
     synchronized void close() throws IOException {
-        out.close();
+        try {
+            flush();
+        } finally {
+            out.close();
+        }
+    }
+
+    private void updateBufferEnd() {
+        if (buffer.position() > bufferEnd)
+            bufferEnd = buffer.position();
+    }
+
+    private void flushBuffer() {
+        long position = getPosition();
+
+        try {
+            if (bufferEnd > 0) {
+                buffer.position(0);
+                buffer.limit(bufferEnd);
+
+                long writePosition = bufferStart;
+                while (buffer.hasRemaining())
+                    writePosition += channel.write(buffer, writePosition);
+
+                fileSize = Math.max(fileSize, writePosition);
+            }
+        } catch (IOException e) {
+            throw new DataFileWriterException(e);
+        } finally {
+            buffer.clear();
+            bufferEnd = 0;
+            bufferStart = position;
+        }
     }
 
     static class DataFileWriterException extends RuntimeException {
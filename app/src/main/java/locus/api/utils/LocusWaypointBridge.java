@@ -0,0 +1,145 @@
+package locus.api.utils;
+
+import android.content.Context;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import locus.api.android.ActionTools;
+import locus.api.android.utils.LocusUtils.LocusVersion;
+import locus.api.objects.extra.Waypoint;
+import timber.log.Timber;
+
+/**
+ * Reads and updates Locus waypoints in chunks on a single bridge thread. Locus API provides
+ * only a content provider call per waypoint, so the chunks are processed in the background
+ * while a caller downloads data for a previous chunk. Chunks are processed in the same order
+ * as they were submitted, so an update of a chunk is always finished before a later read.
+ */
+public class LocusWaypointBridge implements Closeable {
+    private static final long TERMINATION_TIMEOUT_SECONDS = 30;
+
+    private final Context context;
+    private final LocusVersion locusVersion;
+
+    private final ExecutorService executor;
+    private final Deque<Future<?>> pendingReads;
+    private final Deque<Future<?>> pendingUpdates;
+
+    public LocusWaypointBridge(@NonNull Context context, @NonNull LocusVersion locusVersion) {
+        this.context = context.getApplicationContext();
+        this.locusVersion = locusVersion;
+
+        executor = Executors.newSingleThreadExecutor(r -> new Thread(r, "LocusWaypointBridge"));
+        pendingReads = new ArrayDeque<>();
+        pendingUpdates = new ArrayDeque<>();
+    }
+
+    /**
+     * Submit a read of waypoints with ids from the given range. The returned list has the same
+     * size and order as the range, a waypoint not found in Locus is null.
+     */
+    @NonNull
+    public Future<List<Waypoint>> read(@NonNull long[] ids, int from, int count) {
+        while (!pendingReads.isEmpty() && pendingReads.peekFirst().isDone())
+            pendingReads.pollFirst();
+
+        Future<List<Waypoint>> future = executor.submit(() -> {
+            List<Waypoint> waypoints = new ArrayList<>(count);
+            for (int i = 0; i < count; i++)
+                waypoints.add(ActionTools.getLocusWaypoint(context, locusVersion, ids[from + i]));
+
+            return waypoints;
+        });
+
+        pendingReads.addLast(future);
+        return future;
+    }
+
+    /**
+     * Submit an update of waypoints in Locus.
+     *
+     * @param onUpdated called on the bridge thread after all waypoints are updated
+     * @throws Exception if any previously submitted update failed
+     */
+    public void update(@NonNull List<Waypoint> waypoints, @Nullable Runnable onUpdated) throws Exception {
+        // report failures as soon as possible
+        while (!pendingUpdates.isEmpty() && pendingUpdates.peekFirst().isDone())
+            await(pendingUpdates.pollFirst());
+
+        pendingUpdates.addLast(executor.submit(() -> {
+            for (Waypoint waypoint : waypoints)
+                ActionTools.updateLocusWaypoint(context, locusVersion, waypoint, false);
+
+            if (onUpdated != null)
+                onUpdated.run();
+
+            return null;
+        }));
+    }
+
+    /**
+     * Wait until all submitted updates are finished.
+     *
+     * @throws Exception if any submitted update failed
+     */
+    public void flush() throws Exception {
+        while (!pendingUpdates.isEmpty())
+            await(pendingUpdates.pollFirst());
+    }
+
+    /**
+     * Drop all not yet started reads and wait for submitted updates. Updates are never
+     * dropped, they contain data already merged with the original waypoints.
+     */
+    @Override
+    public void close() {
+        for (Future<?> future : pendingReads)
+            future.cancel(false);
+        pendingReads.clear();
+        pendingUpdates.clear();
+
+        executor.shutdown();
+
+        try {
+            if (!executor.awaitTermination(TERMINATION_TIMEOUT_SECONDS, TimeUnit.SECONDS))
+                Timber.w("Bridge was not terminated in time.");
+        } catch (InterruptedException e) {
+            Timber.w(e);
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Wait for a result of {@link #read(long[], int, int)}.
+     *
+     * @throws Exception if the read failed
+     */
+    public static <T> T await(@NonNull Future<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+
+            if (cause instanceof Exception)
+                throw (Exception) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+
+            throw e;
+        } catch (CancellationException e) {
+            throw new InterruptedException("Bridge was closed.");
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package locus.api.utils;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import locus.api.objects.Storable;
+import timber.log.Timber;
+
+/**
+ * Bounded two stage pipeline in front of {@link StoreableWriter}. Each object is created by
+ * a conversion running on a convert thread and then written by a write thread, so a caller can
+ * download the next page while previous pages are converted and written. Objects are always
+ * written in the same order as they were submitted. At most <code>capacity</code> objects can
+ * be in the pipeline, {@link #write(Callable, Runnable)} blocks until there is a free slot.
+ * <p>
+ * The underlying {@link StoreableWriter} is not closed by this class.
+ */
+public class PipelinedStoreableWriter implements Closeable {
+    private static final long TERMINATION_TIMEOUT_SECONDS = 30;
+
+    private final StoreableWriter writer;
+    private final int capacity;
+
+    private final ExecutorService convertExecutor;
+    private final ExecutorService writeExecutor;
+    private final Deque<Future<Void>> pending;
+
+    public PipelinedStoreableWriter(@NonNull StoreableWriter writer, int capacity) {
+        this.writer = writer;
+        this.capacity = Math.max(capacity, 1);
+
+        convertExecutor = Executors.newSingleThreadExecutor(r -> new Thread(r, "PipelinedStoreableWriter convert"));
+        writeExecutor = Executors.newSingleThreadExecutor(r -> new Thread(r, "PipelinedStoreableWriter write"));
+        pending = new ArrayDeque<>(this.capacity);
+    }
+
+    /**
+     * Submit a conversion of next object to write.
+     *
+     * @param conversion creates the object to write, runs on the convert thread
+     * @param onWritten  called on the write thread after the object is written
+     * @throws Exception if any previously submitted conversion or write failed
+     */
+    public void write(@NonNull Callable<? extends Storable> conversion, @Nullable Runnable onWritten) throws Exception {
+        // report failures as soon as possible
+        while (!pending.isEmpty() && pending.peekFirst().isDone())
+            await(pending.pollFirst());
+
+        while (pending.size() >= capacity)
+            await(pending.pollFirst());
+
+        final Future<? extends Storable> converted = convertExecutor.submit(conversion);
+        pending.addLast(writeExecutor.submit(() -> {
+            Storable obj = converted.get();
+            if (obj != null)
+                writer.write(obj);
+
+            if (onWritten != null)
+                onWritten.run();
+
+            return null;
+        }));
+    }
+
+    /**
+     * Wait until all submitted objects are written.
+     *
+     * @throws Exception if any submitted conversion or write failed
+     */
+    public void flush() throws Exception {
+        while (!pending.isEmpty())
+            await(pending.pollFirst());
+    }
+
+    /**
+     * Drop all not yet started conversions and writes, interrupt a running conversion and wait
+     * for a running write. A running write is never interrupted, so the underlying writer stays
+     * consistent.
+     */
+    @Override
+    public void close() {
+        for (Future<Void> future : pending)
+            future.cancel(false);
+        pending.clear();
+
+        // queued conversions have side effects too, eg. storing of converted geocaches
+        List<Runnable> droppedConversions = convertExecutor.shutdownNow();
+        writeExecutor.shutdown();
+
+        // a write already waiting for a dropped conversion must not wait forever
+        for (Runnable conversion : droppedConversions) {
+            if (conversion instanceof Future)
+                ((Future<?>) conversion).cancel(false);
+        }
+
+        try {
+            if (!convertExecutor.awaitTermination(TERMINATION_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                    || !writeExecutor.awaitTermination(TERMINATION_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                Timber.w("Pipeline was not terminated in time.");
+            }
+        } catch (InterruptedException e) {
+            Timber.w(e);
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void await(@NonNull Future<Void> future) throws Exception {
+        try {
+            future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+
+            // write stage wraps a failure of the convert stage
+            while (cause instanceof ExecutionException && cause.getCause() != null)
+                cause = cause.getCause();
+
+            if (cause instanceof Exception)
+                throw (Exception) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+
+            throw e;
+        } catch (CancellationException e) {
+            throw new InterruptedException("Pipeline was closed.");
+        }
+    }
+}
@@ -1,8 +1,11 @@
 package locus.api.utils;
 
 import java.io.Closeable;
+import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
 
 import locus.api.objects.Storable;
 
@@ -25,6 +28,54 @@ public class StoreableWriter implements Closeable {
 
     }
 
+    private StoreableWriter(DataFileWriterBigEndian writer, int count) {
+        this.writer = writer;
+        this.count = count;
+        counterPosition = 0;
+    }
+
+    /**
+     * Open a file written from its beginning by a previous writer to append more Storeable
+     * objects. Data after the position are discarded.
+     *
+     * @param file     file to append to
+     * @param position file position returned by {@link #sync()} of the previous writer
+     * @param count    count of Storeable objects written before the position
+     * @return writer appending to the file
+     * @throws IOException If I/O error occurs
+     */
+    public static StoreableWriter resume(File file, long position, int count) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try {
+            FileChannel channel = randomAccessFile.getChannel();
+            if (channel.size() < position)
+                throw new IOException("File is shorter than the position " + position);
+
+            channel.truncate(position);
+            channel.position(position);
+
+            return new StoreableWriter(new DataFileWriterBigEndian(channel, randomAccessFile), count);
+        } catch (IOException e) {
+            randomAccessFile.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Write all buffered data and the current count of Storeable objects to the file, so the file
+     * is valid up to this point even if the writer isn't closed.
+     *
+     * @return file position where a next writer can resume writing
+     * @throws IOException If I/O error occurs
+     */
+    public synchronized long sync() throws IOException {
+        if (closed)
+            throw new IOException("Output stream closed.");
+
+        writer.writeIntAt(counterPosition, count);
+        return writer.getPosition();
+    }
+
     /**
      * Return count of written Storeable objects
      *
@@ -54,14 +105,11 @@ public class StoreableWriter implements Closeable {
 
             closed = true;
 
-            int lastPosition = writer.getPosition();
-
-            writer.moveTo(counterPosition);
-            writer.writeInt(count);
-            writer.moveTo(lastPosition);
-
-            writer.flush();
-            writer.close();
+            try {
+                writer.writeIntAt(counterPosition, count);
+            } finally {
+                writer.close();
+            }
         } catch (DataFileWriterBigEndian.DataFileWriterException e) {
             throw e.getCause();
         }
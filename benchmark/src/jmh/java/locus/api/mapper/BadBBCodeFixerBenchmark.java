@@ -0,0 +1,41 @@
+package locus.api.mapper;
+
+import com.arcao.geocaching.api.GeocachingApi.ResultQuality;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BadBBCodeFixerBenchmark {
+    // LITE geocaches have no description
+    @Param({"SUMMARY", "FULL"})
+    public ResultQuality resultQuality;
+
+    private String description;
+
+    @Setup
+    public void setUp() {
+        description = GeocacheFixtures.createGeocache(resultQuality, 0).longDescription();
+    }
+
+    @Benchmark
+    public String fix() {
+        return BadBBCodeFixer.fix(description);
+    }
+}
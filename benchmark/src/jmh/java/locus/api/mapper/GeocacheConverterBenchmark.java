@@ -0,0 +1,48 @@
+package locus.api.mapper;
+
+import com.arcao.geocaching.api.GeocachingApi.ResultQuality;
+import com.arcao.geocaching.api.data.Geocache;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import locus.api.objects.extra.Waypoint;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GeocacheConverterBenchmark {
+    @Param({"LITE", "SUMMARY", "FULL"})
+    public ResultQuality resultQuality;
+
+    @Param({"0", "5", "30"})
+    public int logCount;
+
+    private GeocacheConverter converter;
+    private Geocache geocache;
+
+    @Setup
+    public void setUp() {
+        converter = new GeocacheConverter("Final location", "User waypoint %1$d", true, 1);
+        geocache = GeocacheFixtures.createGeocache(resultQuality, logCount);
+    }
+
+    @Benchmark
+    public Waypoint createLocusWaypoint() {
+        return converter.createLocusWaypoint(geocache);
+    }
+}
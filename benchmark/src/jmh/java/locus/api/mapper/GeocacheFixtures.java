@@ -0,0 +1,197 @@
+package locus.api.mapper;
+
+import com.arcao.geocaching.api.GeocachingApi.ResultQuality;
+import com.arcao.geocaching.api.data.Geocache;
+import com.arcao.geocaching.api.data.GeocacheLog;
+import com.arcao.geocaching.api.data.ImageData;
+import com.arcao.geocaching.api.data.User;
+import com.arcao.geocaching.api.data.Waypoint;
+import com.arcao.geocaching.api.data.coordinates.Coordinates;
+import com.arcao.geocaching.api.data.type.AttributeType;
+import com.arcao.geocaching.api.data.type.ContainerType;
+import com.arcao.geocaching.api.data.type.GeocacheLogType;
+import com.arcao.geocaching.api.data.type.GeocacheType;
+import com.arcao.geocaching.api.data.type.WaypointType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates deterministic geocaches similar to Geocaching API responses in a given quality.
+ */
+final class GeocacheFixtures {
+    private static final long SEED = 4242;
+    private static final long DAY_MS = 24 * 60 * 60 * 1000L;
+    private static final long BASE_TIME = 1514764800000L; // 2018-01-01
+
+    private static final GeocacheLogType[] LOG_TYPES = {
+            GeocacheLogType.FoundIt, GeocacheLogType.FoundIt, GeocacheLogType.FoundIt,
+            GeocacheLogType.DidntFindIt, GeocacheLogType.WriteNote, GeocacheLogType.NeedsMaintenance,
+            GeocacheLogType.OwnerMaintenance
+    };
+
+    private GeocacheFixtures() {
+    }
+
+    static Geocache createGeocache(ResultQuality resultQuality, int logCount) {
+        Random random = new Random(SEED);
+        boolean summary = resultQuality != ResultQuality.LITE;
+        boolean full = resultQuality == ResultQuality.FULL;
+
+        Coordinates coordinates = createCoordinates(random);
+
+        return Geocache.builder()
+                .id(4242424)
+                .code("GC4BENC")
+                .guid("f5b3a4e0-2c7d-4b39-9a16-6d0c7a1e8b42")
+                .name("Benchmark cache in " + resultQuality + " quality")
+                .coordinates(coordinates)
+                .geocacheType(GeocacheType.Multi)
+                .containerType(ContainerType.Small)
+                .difficulty(2.5F)
+                .terrain(3F)
+                .owner(createUser(random, 1))
+                .placedBy("Benchmark owner")
+                .available(true)
+                .archived(false)
+                .premium(false)
+                .foundByUser(false)
+                .placeDate(new Date(BASE_TIME - 900 * DAY_MS))
+                .publishDate(new Date(BASE_TIME - 899 * DAY_MS))
+                .lastUpdateDate(new Date(BASE_TIME - DAY_MS))
+                .countryName(summary ? "Czech Republic" : null)
+                .stateName(summary ? "Jihomoravsky kraj" : null)
+                .favoritePoints(17)
+                .shortDescription(summary ? createDescription(random, 1) : null)
+                .shortDescriptionHtml(true)
+                .longDescription(summary ? createDescription(random, full ? 40 : 8) : null)
+                .longDescriptionHtml(true)
+                .hint(summary ? "Under the third stone from the bench." : null)
+                .personalNote(full ? createPersonalNote() : null)
+                .images(full ? createImages(random, 6) : Collections.emptyList())
+                .attributes(full ? createAttributes() : Collections.emptyList())
+                .waypoints(full ? createWaypoints(random, coordinates, 5) : Collections.emptyList())
+                .userWaypoints(Collections.emptyList())
+                .trackables(Collections.emptyList())
+                .geocacheLogs(createGeocacheLogs(random, logCount))
+                .build();
+    }
+
+    static List<GeocacheLog> createGeocacheLogs(int count) {
+        return createGeocacheLogs(new Random(SEED), count);
+    }
+
+    private static List<GeocacheLog> createGeocacheLogs(Random random, int count) {
+        List<GeocacheLog> logs = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            GeocacheLogType logType = LOG_TYPES[random.nextInt(LOG_TYPES.length)];
+
+            logs.add(GeocacheLog.builder()
+                    .id(100000 + i)
+                    .visited(new Date(BASE_TIME - i * DAY_MS))
+                    .logType(logType)
+                    .author(createUser(random, 100 + i))
+                    .text(createLogText(random, i))
+                    .images(i % 4 == 0 ? createImages(random, 2) : Collections.emptyList())
+                    .updatedCoordinates(null)
+                    .build());
+        }
+
+        // API returns the newest logs first, but mixing them makes the sort do some work
+        Collections.shuffle(logs, random);
+        return logs;
+    }
+
+    private static User createUser(Random random, int index) {
+        return User.builder()
+                .id(5000 + index)
+                .userName("Geocacher" + index)
+                .findCount(random.nextInt(5000))
+                .build();
+    }
+
+    private static List<ImageData> createImages(Random random, int count) {
+        List<ImageData> images = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String guid = Long.toHexString(random.nextLong());
+            images.add(ImageData.builder()
+                    .name("Spoiler " + i)
+                    .description("Photo taken at the start of the trail " + i)
+                    .url("https://img.geocaching.com/cache/large/" + guid + ".jpg")
+                    .thumbUrl("https://img.geocaching.com/cache/thumb/" + guid + ".jpg")
+                    .build());
+        }
+        return images;
+    }
+
+    private static List<AttributeType> createAttributes() {
+        return Arrays.asList(AttributeType.values()).subList(0, Math.min(8, AttributeType.values().length));
+    }
+
+    private static List<Waypoint> createWaypoints(Random random, Coordinates center, int count) {
+        List<Waypoint> waypoints = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            waypoints.add(Waypoint.builder()
+                    .coordinates(Coordinates.create(center.latitude() + (random.nextDouble() - 0.5) / 100,
+                            center.longitude() + (random.nextDouble() - 0.5) / 100))
+                    .time(new Date(BASE_TIME))
+                    .waypointCode("S" + i + "4BENC")
+                    .name("Stage " + (i + 1))
+                    .note("Count the windows and write down the number as A.")
+                    .waypointType(i == count - 1 ? WaypointType.FinalLocation : WaypointType.PhysicalStage)
+                    .build());
+        }
+        return waypoints;
+    }
+
+    private static Coordinates createCoordinates(Random random) {
+        return Coordinates.create(49 + random.nextDouble(), 16 + random.nextDouble());
+    }
+
+    private static String createPersonalNote() {
+        return "Stage 1: N 49° 12.345 E 016° 34.567\n"
+                + "Parking: N 49° 12.000 E 016° 34.000\n"
+                + "A = 5, B = 3\n"
+                + "S1: N 49° 12.400 E 016° 34.600\n"
+                + "Final: N 49° 12.999 E 016° 34.111\n";
+    }
+
+    private static String createLogText(Random random, int index) {
+        StringBuilder sb = new StringBuilder();
+        int sentences = 1 + random.nextInt(6);
+        for (int i = 0; i < sentences; i++) {
+            sb.append("Thanks for the cache number ").append(index)
+                    .append(", we found it after ").append(random.nextInt(60)).append(" minutes. ");
+        }
+        return sb.toString();
+    }
+
+    private static String createDescription(Random random, int paragraphs) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < paragraphs; i++) {
+            sb.append("<p>");
+            switch (random.nextInt(4)) {
+                case 0:
+                    sb.append("[color=red]Beware of the dog at the gate.[/color=red] ");
+                    break;
+                case 1:
+                    sb.append("[url=https://www.geocaching.com/]Visit the listing[/url=https://www.geocaching.com/] ");
+                    break;
+                case 2:
+                    sb.append("[size=5]The cache is hidden in a small park.[/size=5] ");
+                    break;
+                default:
+                    sb.append("[align=center][img=200,100]https://img.geocaching.com/banner.png[/img=200,100][/align=center] ");
+                    break;
+            }
+            sb.append("Lorem ipsum dolor sit amet, consectetur adipiscing elit, sed do eiusmod tempor incididunt ")
+                    .append("ut labore et dolore magna aliqua. Ut enim ad minim veniam, quis nostrud exercitation.")
+                    .append("</p>\n");
+        }
+        return sb.toString();
+    }
+}
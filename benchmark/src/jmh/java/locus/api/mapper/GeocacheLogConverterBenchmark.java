@@ -0,0 +1,53 @@
+package locus.api.mapper;
+
+import com.arcao.geocaching.api.data.GeocacheLog;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import locus.api.objects.extra.Location;
+import locus.api.objects.extra.Waypoint;
+import locus.api.objects.geocaching.GeocachingData;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GeocacheLogConverterBenchmark {
+    @Param({"0", "5", "30"})
+    public int logCount;
+
+    private GeocacheLogConverter converter;
+    private List<GeocacheLog> logs;
+
+    @Setup
+    public void setUp() {
+        InternPool internPool = new InternPool();
+        converter = new GeocacheLogConverter(new ImageDataConverter(internPool), internPool);
+        logs = GeocacheFixtures.createGeocacheLogs(logCount);
+    }
+
+    @Benchmark
+    public Waypoint addGeocacheLogs() {
+        // logs are appended, so each invocation needs an empty waypoint
+        Waypoint waypoint = new Waypoint("GC4BENC", new Location("GC4BENC"));
+        waypoint.gcData = new GeocachingData();
+
+        converter.addGeocacheLogs(waypoint, logs);
+        return waypoint;
+    }
+}
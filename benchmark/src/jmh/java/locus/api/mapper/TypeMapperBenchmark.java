@@ -0,0 +1,88 @@
+package locus.api.mapper;
+
+import com.arcao.geocaching.api.data.type.ContainerType;
+import com.arcao.geocaching.api.data.type.GeocacheLogType;
+import com.arcao.geocaching.api.data.type.GeocacheType;
+import com.arcao.geocaching.api.data.type.WaypointType;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+import locus.api.objects.geocaching.GeocachingData;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TypeMapperBenchmark {
+    private GeocacheType[] cacheTypes;
+    private ContainerType[] containerTypes;
+    private GeocacheLogType[] logTypes;
+    private WaypointType[] waypointTypes;
+
+    @Setup
+    public void setUp() {
+        cacheTypes = GeocacheType.values();
+        containerTypes = ContainerType.values();
+        logTypes = GeocacheLogType.values();
+        waypointTypes = WaypointType.values();
+
+        // the benchmark is valid only if all Locus types survive a round trip
+        for (GeocacheType type : cacheTypes) {
+            int locusType = TypeMapper.toLocusCacheType(type);
+            if (TypeMapper.toLocusCacheType(TypeMapper.fromLocusCacheType(locusType)) != locusType)
+                throw new IllegalStateException("Geocache type not mapped back: " + type);
+        }
+        if (TypeMapper.toLocusCacheType(null) != GeocachingData.CACHE_TYPE_UNDEFINED)
+            throw new IllegalStateException("Missing geocache type not mapped to undefined");
+
+        for (ContainerType type : containerTypes) {
+            int locusType = TypeMapper.toLocusContainerType(type);
+            if (TypeMapper.toLocusContainerType(TypeMapper.fromLocusContainerType(locusType)) != locusType)
+                throw new IllegalStateException("Container type not mapped back: " + type);
+        }
+
+        for (GeocacheLogType type : logTypes) {
+            int locusType = TypeMapper.toLocusLogType(type);
+            if (TypeMapper.toLocusLogType(TypeMapper.fromLocusLogType(locusType)) != locusType)
+                throw new IllegalStateException("Log type not mapped back: " + type);
+        }
+
+        for (WaypointType type : waypointTypes) {
+            String locusType = TypeMapper.toLocusWaypointType(type);
+            if (!TypeMapper.toLocusWaypointType(TypeMapper.fromLocusWaypointType(locusType)).equals(locusType))
+                throw new IllegalStateException("Waypoint type not mapped back: " + type);
+        }
+    }
+
+    @Benchmark
+    public void toLocusTypes(Blackhole blackhole) {
+        for (GeocacheType type : cacheTypes)
+            blackhole.consume(TypeMapper.toLocusCacheType(type));
+        for (ContainerType type : containerTypes)
+            blackhole.consume(TypeMapper.toLocusContainerType(type));
+        for (GeocacheLogType type : logTypes)
+            blackhole.consume(TypeMapper.toLocusLogType(type));
+        for (WaypointType type : waypointTypes)
+            blackhole.consume(TypeMapper.toLocusWaypointType(type));
+    }
+
+    @Benchmark
+    public void fromLocusLogTypes(Blackhole blackhole) {
+        for (GeocacheLogType type : logTypes)
+            blackhole.consume(TypeMapper.fromLocusLogType(TypeMapper.toLocusLogType(type)));
+    }
+}
@@ -0,0 +1,61 @@
+package locus.api.mapper;
+
+import com.arcao.geocaching.api.GeocachingApi.ResultQuality;
+import com.arcao.geocaching.api.data.Geocache;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import locus.api.objects.extra.Waypoint;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class WaypointMergerBenchmark {
+    @Param({"LITE", "SUMMARY", "FULL"})
+    public ResultQuality resultQuality;
+
+    @Param({"0", "5", "30"})
+    public int logCount;
+
+    private GeocacheConverter converter;
+    private WaypointMerger merger;
+    private Geocache geocache;
+    private Waypoint srcWaypoint;
+    private Waypoint dstWaypoint;
+
+    @Setup
+    public void setUp() {
+        converter = new GeocacheConverter("Final location", "User waypoint %1$d", false, 1);
+        merger = new WaypointMerger(true, 1);
+        geocache = GeocacheFixtures.createGeocache(resultQuality, logCount);
+        srcWaypoint = converter.createLocusWaypoint(geocache);
+    }
+
+    // merge modifies the destination waypoint, a conversion per invocation is much slower than the merge
+    @Setup(Level.Invocation)
+    public void setUpInvocation() {
+        dstWaypoint = converter.createLocusWaypoint(geocache);
+    }
+
+    @Benchmark
+    public Waypoint mergeWaypoint() {
+        merger.mergeWaypoint(dstWaypoint, srcWaypoint);
+        return dstWaypoint;
+    }
+}
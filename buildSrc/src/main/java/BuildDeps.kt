@@ -3,4 +3,5 @@ object BuildDeps {
     const val gradle_versions_plugin = "com.github.ben-manes:gradle-versions-plugin:${Versions.gradle_versions_plugin}"
     const val google_services_plugin = "com.google.gms:google-services:${Versions.google_services_plugin}"
     const val fabric_io_plugin = "io.fabric.tools:gradle:${Versions.fabric_io_plugin}"
+    const val jmh_plugin = "me.champeau.gradle:jmh-gradle-plugin:${Versions.jmh_plugin}"
 }
\ No newline at end of file
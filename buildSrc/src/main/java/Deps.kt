@@ -7,12 +7,14 @@ object Deps {
     const val cardview_v7 = "com.android.support:cardview-v7:${Versions.support}"
     const val design = "com.android.support:design:${Versions.support}"
     const val constraint_layout = "com.android.support.constraint:constraint-layout:${Versions.constraint_layout}"
+    const val support_annotations = "com.android.support:support-annotations:${Versions.support}"
 
     // Geocaching API
     const val geocaching_api = "com.arcao:geocaching-api:${Versions.geocaching_api}"
 
     // Locus API
     const val locus_api_android = "com.asamm:locus-api-android:${Versions.locus_api_android}"
+    const val locus_api_core = "com.asamm:locus-api-core:${Versions.locus_api_android}"
 
     // Logging API
     const val slf4j_timber = "com.arcao:slf4j-timber:${Versions.slf4j_timber}"
@@ -48,4 +50,7 @@ object Deps {
     // Auto-Value Parcelable
     const val auto_value_parcel = "com.ryanharter.auto.value:auto-value-parcel:${Versions.auto_value_parcel}"
     const val auto_value_parcel_adapter = "com.ryanharter.auto.value:auto-value-parcel-adapter:${Versions.auto_value_parcel}"
+
+    // Benchmarks
+    const val android_stubs = "com.google.android:android:${Versions.android_stubs}"
 }
\ No newline at end of file
@@ -7,6 +7,7 @@ object Versions {
     const val gradle_versions_plugin = "0.17.0"
     const val google_services_plugin = "4.0.1"
     const val fabric_io_plugin = "1.25.4"
+    const val jmh_plugin = "0.4.7"
 
     const val support = "27.1.1"
     const val constraint_layout = "1.1.0"
@@ -25,4 +26,8 @@ object Versions {
     const val butterknife = "8.8.1"
     const val auto_value = "1.6"
     const val auto_value_parcel = "0.2.6"
+
+    // Benchmarks
+    const val jmh = "1.21"
+    const val android_stubs = "4.1.1.4"
 }
\ No newline at end of file